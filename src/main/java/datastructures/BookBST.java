@@ -1,21 +1,54 @@
 package datastructures;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 import library.models.Book;
 
 public class BookBST {
-	private BookNode root;
+	// Readers load the root once and work on that immutable snapshot; writers
+	// copy the path they touch and publish the new version with one volatile write
+	private volatile BookNode root;
 
-	// Node class for BST
-	public class BookNode {
-		private Book book;
-		private BookNode left, right;
-		private int height; // For AVL balancing
+	// Node class for BST (immutable, shared between versions)
+	public static class BookNode {
+		private final Book book;
+		private final BookNode left, right;
+		private final int height; // For AVL balancing
+		private final int size; // Books in this subtree, for rank and select
 
 		public BookNode(Book book) {
+			this(book, null, null);
+		}
+
+		private BookNode(Book book, BookNode left, BookNode right) {
 			this.book = book;
-			this.left = null;
-			this.right = null;
-			this.height = 1; // Initial height
+			this.left = left;
+			this.right = right;
+			this.height = Math.max(height(left), height(right)) + 1;
+			this.size = size(left) + size(right) + 1;
+		}
+
+		public Book getBook() {
+			return book;
+		}
+
+		public BookNode getLeft() {
+			return left;
+		}
+
+		public BookNode getRight() {
+			return right;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		public int getSize() {
+			return size;
 		}
 	}
 
@@ -25,62 +58,66 @@ public class BookBST {
 	}
 
 	// Get height of node (for AVL)
-	private int height(BookNode node) {
+	private static int height(BookNode node) {
 		if (node == null) {
 			return 0;
 		}
 		return node.height;
 	}
 
-	// Get balance factor (for AVL)
-	private int getBalance(BookNode node) {
+	// Get subtree size of node (0 for an empty subtree)
+	private static int size(BookNode node) {
 		if (node == null) {
 			return 0;
 		}
-		return height(node.left) - height(node.right);
+		return node.size;
 	}
 
-	// Update height of node
-	private void updateHeight(BookNode node) {
-		if (node != null) {
-			node.height = Math.max(height(node.left), height(node.right)) + 1;
+	// Get balance factor (for AVL)
+	private static int getBalance(BookNode node) {
+		if (node == null) {
+			return 0;
 		}
+		return height(node.left) - height(node.right);
 	}
 
-	// Right rotation
-	private BookNode rightRotate(BookNode y) {
+	// Right rotation, returns the new subtree root
+	private static BookNode rightRotate(BookNode y) {
 		BookNode x = y.left;
-		BookNode T2 = x.right;
-
-		// Perform rotation
-		x.right = y;
-		y.left = T2;
-
-		// Update heights
-		updateHeight(y);
-		updateHeight(x);
-
-		return x;
+		return new BookNode(x.book, x.left, new BookNode(y.book, x.right, y.right));
 	}
 
-	// Left rotation
-	private BookNode leftRotate(BookNode x) {
+	// Left rotation, returns the new subtree root
+	private static BookNode leftRotate(BookNode x) {
 		BookNode y = x.right;
-		BookNode T2 = y.left;
+		return new BookNode(y.book, new BookNode(x.book, x.left, y.left), y.right);
+	}
 
-		// Perform rotation
-		y.left = x;
-		x.right = T2;
+	// Build a node from its parts and restore the AVL property if needed
+	private static BookNode balance(Book book, BookNode left, BookNode right) {
+		int balance = height(left) - height(right);
 
-		// Update heights
-		updateHeight(x);
-		updateHeight(y);
+		// Left Left / Left Right Case
+		if (balance > 1) {
+			if (getBalance(left) < 0) {
+				left = leftRotate(left);
+			}
+			return rightRotate(new BookNode(book, left, right));
+		}
 
-		return y;
+		// Right Right / Right Left Case
+		if (balance < -1) {
+			if (getBalance(right) > 0) {
+				right = rightRotate(right);
+			}
+			return leftRotate(new BookNode(book, left, right));
+		}
+
+		return new BookNode(book, left, right);
 	}
 
 	// Insert a book
-	public void insert(Book book) {
+	public synchronized void insert(Book book) {
 		root = insertNode(root, book);
 	}
 
@@ -95,43 +132,75 @@ public class BookBST {
 		int compareResult = book.getTitle().compareToIgnoreCase(node.book.getTitle());
 
 		if (compareResult < 0) {
-			node.left = insertNode(node.left, book);
+			BookNode left = insertNode(node.left, book);
+			return left == node.left ? node : balance(node.book, left, node.right);
 		} else if (compareResult > 0) {
-			node.right = insertNode(node.right, book);
-		} else {
-			// Duplicate titles not allowed (can be modified as needed)
-			return node;
+			BookNode right = insertNode(node.right, book);
+			return right == node.right ? node : balance(node.book, node.left, right);
 		}
 
-		// Update height
-		updateHeight(node);
-
-		// Get balance factor
-		int balance = getBalance(node);
+		// Duplicate titles not allowed (can be modified as needed)
+		return node;
+	}
 
-		// Left Left Case
-		if (balance > 1 && book.getTitle().compareToIgnoreCase(node.left.book.getTitle()) < 0) {
-			return rightRotate(node);
+	// Replace the tree with a perfectly balanced one built from books already sorted
+	// by title (ignoring case), in O(n). Repeated titles keep their first occurrence.
+	public synchronized void buildFromSorted(java.util.List<Book> sortedBooks) {
+		java.util.List<Book> unique = new java.util.ArrayList<>(sortedBooks.size());
+		for (Book book : sortedBooks) {
+			if (!unique.isEmpty()) {
+				int compareResult = unique.get(unique.size() - 1).getTitle().compareToIgnoreCase(book.getTitle());
+				if (compareResult > 0) {
+					throw new IllegalArgumentException("Books are not sorted by title: " + book.getTitle());
+				}
+				if (compareResult == 0) {
+					continue;
+				}
+			}
+			unique.add(book);
 		}
+		root = buildBalanced(unique, 0, unique.size() - 1);
+	}
 
-		// Right Right Case
-		if (balance < -1 && book.getTitle().compareToIgnoreCase(node.right.book.getTitle()) > 0) {
-			return leftRotate(node);
+	// Add many books (sorted by title) as one published change. Small batches are
+	// inserted one by one; large ones are merged with the existing titles and the
+	// tree is rebuilt in O(n + m). Existing titles win over repeated ones.
+	public synchronized void mergeSorted(java.util.List<Book> sortedBooks) {
+		int existing = size(root);
+		if ((long) sortedBooks.size() * 32 < existing) {
+			BookNode node = root;
+			for (Book book : sortedBooks) {
+				node = insertNode(node, book);
+			}
+			root = node;
+			return;
 		}
 
-		// Left Right Case
-		if (balance > 1 && book.getTitle().compareToIgnoreCase(node.left.book.getTitle()) > 0) {
-			node.left = leftRotate(node.left);
-			return rightRotate(node);
+		java.util.List<Book> current = new java.util.ArrayList<>(existing);
+		inOrderTraversal(root, current);
+		java.util.List<Book> merged = new java.util.ArrayList<>(existing + sortedBooks.size());
+		int i = 0;
+		int j = 0;
+		while (i < current.size() || j < sortedBooks.size()) {
+			if (j == sortedBooks.size() || (i < current.size()
+					&& current.get(i).getTitle().compareToIgnoreCase(sortedBooks.get(j).getTitle()) <= 0)) {
+				merged.add(current.get(i++));
+			} else {
+				merged.add(sortedBooks.get(j++));
+			}
 		}
+		buildFromSorted(merged);
+	}
 
-		// Right Left Case
-		if (balance < -1 && book.getTitle().compareToIgnoreCase(node.right.book.getTitle()) < 0) {
-			node.right = rightRotate(node.right);
-			return leftRotate(node);
+	// Children are built before their parent, so every node is created exactly once
+	private static BookNode buildBalanced(java.util.List<Book> books, int low, int high) {
+		if (low > high) {
+			return null;
 		}
-
-		return node;
+		int mid = (low + high) >>> 1;
+		BookNode left = buildBalanced(books, low, mid - 1);
+		BookNode right = buildBalanced(books, mid + 1, high);
+		return new BookNode(books.get(mid), left, right);
 	}
 
 	// Search for a book by title
@@ -142,24 +211,28 @@ public class BookBST {
 
 	// Search helper method
 	private BookNode searchNode(BookNode node, String title) {
-		if (node == null || node.book.getTitle().equalsIgnoreCase(title)) {
-			return node;
-		}
-
-		if (title.compareToIgnoreCase(node.book.getTitle()) < 0) {
-			return searchNode(node.left, title);
-		} else {
-			return searchNode(node.right, title);
+		while (node != null) {
+			int compareResult = title.compareToIgnoreCase(node.book.getTitle());
+			if (compareResult == 0) {
+				return node;
+			}
+			node = compareResult < 0 ? node.left : node.right;
 		}
+		return null;
 	}
 
 	// Delete a book
-	public void delete(String title) {
+	public synchronized void delete(String title) {
 		root = deleteNode(root, title);
 	}
 
+	// Remove the old title and insert the new version as a single published change,
+	// so readers never observe the book missing during an update
+	public synchronized void replace(String oldTitle, Book book) {
+		root = insertNode(deleteNode(root, oldTitle), book);
+	}
+
 	// Delete helper method
-	@SuppressWarnings("unused")
 	private BookNode deleteNode(BookNode node, String title) {
 		if (node == null) {
 			return null;
@@ -168,58 +241,31 @@ public class BookBST {
 		int compareResult = title.compareToIgnoreCase(node.book.getTitle());
 
 		if (compareResult < 0) {
-			node.left = deleteNode(node.left, title);
+			BookNode left = deleteNode(node.left, title);
+			return left == node.left ? node : balance(node.book, left, node.right);
 		} else if (compareResult > 0) {
-			node.right = deleteNode(node.right, title);
-		} else {
-			// Node with only one child or no child
-			if (node.left == null) {
-				return node.right;
-			} else if (node.right == null) {
-				return node.left;
-			}
-
-			// Node with two children: Get the inorder successor
-			node.book = minValue(node.right).book;
-
-			// Delete the inorder successor
-			node.right = deleteNode(node.right, node.book.getTitle());
-		}
-
-		// If tree had only one node
-		if (node == null) {
-			return null;
-		}
-
-		// Update height
-		updateHeight(node);
-
-		// Get balance factor
-		int balance = getBalance(node);
-
-		// Left Left Case
-		if (balance > 1 && getBalance(node.left) >= 0) {
-			return rightRotate(node);
+			BookNode right = deleteNode(node.right, title);
+			return right == node.right ? node : balance(node.book, node.left, right);
 		}
 
-		// Left Right Case
-		if (balance > 1 && getBalance(node.left) < 0) {
-			node.left = leftRotate(node.left);
-			return rightRotate(node);
+		// Node with only one child or no child
+		if (node.left == null) {
+			return node.right;
+		} else if (node.right == null) {
+			return node.left;
 		}
 
-		// Right Right Case
-		if (balance < -1 && getBalance(node.right) <= 0) {
-			return leftRotate(node);
-		}
+		// Node with two children: replace it with the inorder successor
+		Book successor = minValue(node.right).book;
+		return balance(successor, node.left, deleteMin(node.right));
+	}
 
-		// Right Left Case
-		if (balance < -1 && getBalance(node.right) > 0) {
-			node.right = rightRotate(node.right);
-			return leftRotate(node);
+	// Remove the leftmost node of a subtree
+	private BookNode deleteMin(BookNode node) {
+		if (node.left == null) {
+			return node.right;
 		}
-
-		return node;
+		return balance(node.book, deleteMin(node.left), node.right);
 	}
 
 	// Find the node with minimum value
@@ -249,8 +295,155 @@ public class BookBST {
 		return books;
 	}
 
-	// Get root node
+	// Number of books in the tree
+	public int size() {
+		return size(root);
+	}
+
+	// Book at the given 0-based position in title order, or null if out of range
+	public Book select(int index) {
+		BookNode node = root;
+		if (index < 0 || index >= size(node)) {
+			return null;
+		}
+		while (node != null) {
+			int leftSize = size(node.left);
+			if (index == leftSize) {
+				return node.book;
+			}
+			if (index < leftSize) {
+				node = node.left;
+			} else {
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+		return null;
+	}
+
+	// Number of books whose title comes before the given one (ignoring case), which
+	// is also the 0-based position of that title when it is present
+	public int rank(String title) {
+		return rank(root, title);
+	}
+
+	private static int rank(BookNode node, String title) {
+		int rank = 0;
+		while (node != null) {
+			if (title.compareToIgnoreCase(node.book.getTitle()) <= 0) {
+				node = node.left;
+			} else {
+				rank += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return rank;
+	}
+
+	// Number of books with fromTitle <= title < toTitle (null bounds are open), same
+	// range as findInRange but without visiting the books
+	public int countInRange(String fromTitle, String toTitle) {
+		BookNode snapshot = root;
+		int from = fromTitle == null ? 0 : rank(snapshot, fromTitle);
+		int to = toTitle == null ? size(snapshot) : rank(snapshot, toTitle);
+		return Math.max(0, to - from);
+	}
+
+	// Lazily iterate books in title order starting at the given 0-based position
+	public Iterator<Book> iteratorAt(int index) {
+		return new TitleIterator(root, Math.max(0, index));
+	}
+
+	// Lazily iterate books in title order starting at fromTitle (null starts at the
+	// first title). Only the nodes on the way down and the visited ones are touched.
+	public Iterator<Book> iteratorFrom(String fromTitle, boolean inclusive) {
+		return new TitleIterator(root, fromTitle, inclusive);
+	}
+
+	// Books whose title starts with the prefix (ignoring case), at most limit of them
+	public java.util.List<Book> findByPrefix(String prefix, int limit) {
+		java.util.List<Book> result = new java.util.ArrayList<>();
+		Iterator<Book> iterator = iteratorFrom(prefix, true);
+
+		while (result.size() < limit && iterator.hasNext()) {
+			Book book = iterator.next();
+			// Titles sharing the prefix are contiguous, so the first miss ends the scan
+			if (!book.getTitle().regionMatches(true, 0, prefix, 0, prefix.length())) {
+				break;
+			}
+			result.add(book);
+		}
+
+		return result;
+	}
+
+	// Books with fromTitle <= title < toTitle (ignoring case), at most limit of them
+	public java.util.List<Book> findInRange(String fromTitle, String toTitle, int limit) {
+		java.util.List<Book> result = new java.util.ArrayList<>();
+		Iterator<Book> iterator = iteratorFrom(fromTitle, true);
+
+		while (result.size() < limit && iterator.hasNext()) {
+			Book book = iterator.next();
+			if (toTitle != null && book.getTitle().compareToIgnoreCase(toTitle) >= 0) {
+				break;
+			}
+			result.add(book);
+		}
+
+		return result;
+	}
+
+	// In-order iterator over one snapshot, using an explicit stack of pending ancestors
+	private static class TitleIterator implements Iterator<Book> {
+		private final Deque<BookNode> stack = new ArrayDeque<>();
+
+		TitleIterator(BookNode node, String fromTitle, boolean inclusive) {
+			// Descend towards the lower bound, keeping only nodes that are inside the range
+			while (node != null) {
+				int compareResult = fromTitle == null ? 1 : node.book.getTitle().compareToIgnoreCase(fromTitle);
+				if (compareResult > 0 || (inclusive && compareResult == 0)) {
+					stack.push(node);
+					node = node.left;
+				} else {
+					node = node.right;
+				}
+			}
+		}
+
+		TitleIterator(BookNode node, int index) {
+			// Same descent, steering by subtree sizes instead of titles
+			while (node != null) {
+				int leftSize = size(node.left);
+				if (index <= leftSize) {
+					stack.push(node);
+					node = node.left;
+				} else {
+					index -= leftSize + 1;
+					node = node.right;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		@Override
+		public Book next() {
+			if (stack.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+			BookNode current = stack.pop();
+			for (BookNode node = current.right; node != null; node = node.left) {
+				stack.push(node);
+			}
+			return current.book;
+		}
+	}
+
+	// Get root node (an immutable snapshot of the current version)
 	public BookNode getRoot() {
 		return root;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,186 @@
+package datastructures;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Growable ring buffer: elements live in elements[(head + i) % length], so both
+// ends are O(1). The fields mirror ArraycitaList (elements, size) plus head, which
+// lets documents stored as an ArraycitaList load with head = 0.
+public class CircularDeque<T> implements Iterable<T> {
+    private static final int DEFAULT_CAPACITY = 10;
+    private Object[] elements;
+    private int head;
+    private int size;
+
+    public CircularDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CircularDeque(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
+        }
+        this.elements = new Object[initialCapacity];
+        this.head = 0;
+        this.size = 0;
+    }
+
+    public void addLast(T element) {
+        ensureCapacity();
+        elements[physical(size)] = element;
+        size++;
+    }
+
+    public void addFirst(T element) {
+        ensureCapacity();
+        head = head == 0 ? elements.length - 1 : head - 1;
+        elements[head] = element;
+        size++;
+    }
+
+    // Insert keeping the deque sorted by the comparator, after any equal elements.
+    // Scans from the tail, so appending in order is O(1).
+    public void addOrdered(T element, Comparator<? super T> comparator) {
+        ensureCapacity();
+        int index = size;
+        while (index > 0 && comparator.compare(get(index - 1), element) > 0) {
+            elements[physical(index)] = elements[physical(index - 1)];
+            index--;
+        }
+        elements[physical(index)] = element;
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T peekFirst() {
+        return size == 0 ? null : (T) elements[head];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T peekLast() {
+        return size == 0 ? null : (T) elements[physical(size - 1)];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T pollFirst() {
+        if (size == 0) {
+            return null;
+        }
+        T element = (T) elements[head];
+        elements[head] = null;
+        head = (head + 1) % elements.length;
+        size--;
+        return element;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (T) elements[physical(index)];
+    }
+
+    // Remove at any position, shifting whichever side is shorter
+    public T remove(int index) {
+        T removedElement = get(index);
+        if (index < size / 2) {
+            for (int i = index; i > 0; i--) {
+                elements[physical(i)] = elements[physical(i - 1)];
+            }
+            elements[head] = null;
+            head = (head + 1) % elements.length;
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                elements[physical(i)] = elements[physical(i + 1)];
+            }
+            elements[physical(size - 1)] = null;
+        }
+        size--;
+        return removedElement;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        // Clear references to help GC
+        Arrays.fill(elements, null);
+        head = 0;
+        size = 0;
+    }
+
+    // Lay the elements out from index 0 with no spare slots, the same shape an
+    // ArraycitaList of these elements would have
+    public void trimToSize() {
+        if (head != 0 || elements.length != size) {
+            elements = toArray(size);
+            head = 0;
+        }
+    }
+
+    // Convert to standard Java List
+    public java.util.List<T> toList() {
+        java.util.List<T> list = new java.util.ArrayList<>(size);
+        for (T element : this) {
+            list.add(element);
+        }
+        return list;
+    }
+
+    public static <E> CircularDeque<E> fromList(java.util.List<E> list) {
+        CircularDeque<E> deque = new CircularDeque<>(list.size());
+        for (E item : list) {
+            deque.addLast(item);
+        }
+        return deque;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int currentIndex = 0;
+
+            @Override
+            public boolean hasNext() {
+                return currentIndex < size;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(currentIndex++);
+            }
+        };
+    }
+
+    private int physical(int index) {
+        int position = head + index;
+        return position < elements.length ? position : position - elements.length;
+    }
+
+    private void ensureCapacity() {
+        if (size == elements.length) {
+            elements = toArray(Math.max(DEFAULT_CAPACITY, elements.length * 2));
+            head = 0;
+        }
+    }
+
+    // Copy of the elements in order, starting at index 0
+    private Object[] toArray(int capacity) {
+        Object[] copy = new Object[capacity];
+        int firstPart = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, copy, 0, firstPart);
+        System.arraycopy(elements, 0, copy, firstPart, size - firstPart);
+        return copy;
+    }
+}
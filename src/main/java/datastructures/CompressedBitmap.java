@@ -0,0 +1,359 @@
+package datastructures;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+// Set of non-negative ints split into 65536-wide chunks by their high 16 bits.
+// Sparse chunks keep a sorted char[] of low bits, dense chunks switch to a
+// 1024-word bitmap, so memory follows the cardinality rather than the range.
+public class CompressedBitmap {
+	// Above this many values a bitmap chunk (8KB) is smaller than an array chunk
+	private static final int ARRAY_MAX = 4096;
+	private static final int BITMAP_WORDS = 1024;
+
+	private char[] keys;
+	private Chunk[] chunks;
+	private int chunkCount;
+
+	// One 65536-value chunk, either sorted low bits or a bitmap of them
+	private static class Chunk {
+		private char[] values; // Sorted low bits, null when in bitmap form
+		private long[] words; // Bitmap form, null when in array form
+		private int cardinality;
+
+		static Chunk ofArray(char[] values, int cardinality) {
+			Chunk chunk = new Chunk();
+			chunk.values = values;
+			chunk.cardinality = cardinality;
+			return chunk;
+		}
+
+		static Chunk ofWords(long[] words, int cardinality) {
+			Chunk chunk = new Chunk();
+			chunk.words = words;
+			chunk.cardinality = cardinality;
+			return chunk;
+		}
+
+		boolean contains(char low) {
+			if (words != null) {
+				return (words[low >>> 6] & (1L << low)) != 0;
+			}
+			return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+		}
+
+		boolean add(char low) {
+			if (words != null) {
+				long before = words[low >>> 6];
+				words[low >>> 6] = before | (1L << low);
+				if (before == words[low >>> 6]) {
+					return false;
+				}
+				cardinality++;
+				return true;
+			}
+
+			int index = Arrays.binarySearch(values, 0, cardinality, low);
+			if (index >= 0) {
+				return false;
+			}
+			if (cardinality == ARRAY_MAX) {
+				toWords();
+				return add(low);
+			}
+			index = -index - 1;
+			if (cardinality == values.length) {
+				values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, values.length * 2)));
+			}
+			System.arraycopy(values, index, values, index + 1, cardinality - index);
+			values[index] = low;
+			cardinality++;
+			return true;
+		}
+
+		boolean remove(char low) {
+			if (words != null) {
+				long before = words[low >>> 6];
+				words[low >>> 6] = before & ~(1L << low);
+				if (before == words[low >>> 6]) {
+					return false;
+				}
+				cardinality--;
+				if (cardinality <= ARRAY_MAX / 2) {
+					toArray();
+				}
+				return true;
+			}
+
+			int index = Arrays.binarySearch(values, 0, cardinality, low);
+			if (index < 0) {
+				return false;
+			}
+			System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+			cardinality--;
+			return true;
+		}
+
+		private void toWords() {
+			long[] bitmap = new long[BITMAP_WORDS];
+			for (int i = 0; i < cardinality; i++) {
+				bitmap[values[i] >>> 6] |= 1L << values[i];
+			}
+			words = bitmap;
+			values = null;
+		}
+
+		private void toArray() {
+			char[] array = new char[cardinality];
+			int count = 0;
+			for (int w = 0; w < BITMAP_WORDS; w++) {
+				long word = words[w];
+				while (word != 0) {
+					array[count++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			values = array;
+			words = null;
+		}
+
+		Chunk and(Chunk other) {
+			if (words != null && other.words != null) {
+				long[] result = new long[BITMAP_WORDS];
+				int count = 0;
+				for (int w = 0; w < BITMAP_WORDS; w++) {
+					result[w] = words[w] & other.words[w];
+					count += Long.bitCount(result[w]);
+				}
+				Chunk chunk = ofWords(result, count);
+				if (count <= ARRAY_MAX) {
+					chunk.toArray();
+				}
+				return chunk;
+			}
+			if (words != null) {
+				return other.and(this);
+			}
+
+			// Array side drives, probing the other chunk
+			char[] result = new char[cardinality];
+			int count = 0;
+			if (other.words != null) {
+				for (int i = 0; i < cardinality; i++) {
+					if (other.contains(values[i])) {
+						result[count++] = values[i];
+					}
+				}
+			} else {
+				int i = 0;
+				int j = 0;
+				while (i < cardinality && j < other.cardinality) {
+					if (values[i] < other.values[j]) {
+						i++;
+					} else if (values[i] > other.values[j]) {
+						j++;
+					} else {
+						result[count++] = values[i];
+						i++;
+						j++;
+					}
+				}
+			}
+			return ofArray(result, count);
+		}
+
+		Chunk or(Chunk other) {
+			if (words == null && other.words == null && cardinality + other.cardinality <= ARRAY_MAX) {
+				char[] result = new char[cardinality + other.cardinality];
+				int count = 0;
+				int i = 0;
+				int j = 0;
+				while (i < cardinality || j < other.cardinality) {
+					if (j == other.cardinality || (i < cardinality && values[i] < other.values[j])) {
+						result[count++] = values[i++];
+					} else if (i == cardinality || values[i] > other.values[j]) {
+						result[count++] = other.values[j++];
+					} else {
+						result[count++] = values[i++];
+						j++;
+					}
+				}
+				return ofArray(result, count);
+			}
+
+			long[] result = new long[BITMAP_WORDS];
+			orInto(result);
+			other.orInto(result);
+			int count = 0;
+			for (long word : result) {
+				count += Long.bitCount(word);
+			}
+			Chunk chunk = ofWords(result, count);
+			if (count <= ARRAY_MAX / 2) {
+				chunk.toArray();
+			}
+			return chunk;
+		}
+
+		private void orInto(long[] bitmap) {
+			if (words != null) {
+				for (int w = 0; w < BITMAP_WORDS; w++) {
+					bitmap[w] |= words[w];
+				}
+			} else {
+				for (int i = 0; i < cardinality; i++) {
+					bitmap[values[i] >>> 6] |= 1L << values[i];
+				}
+			}
+		}
+
+		Chunk copy() {
+			return words != null ? ofWords(words.clone(), cardinality)
+					: ofArray(Arrays.copyOf(values, cardinality), cardinality);
+		}
+
+		// Visit values in ascending order, stops early when the visitor returns false
+		boolean forEach(int high, IntPredicate visitor) {
+			if (words != null) {
+				for (int w = 0; w < BITMAP_WORDS; w++) {
+					long word = words[w];
+					while (word != 0) {
+						if (!visitor.test(high | (w << 6) + Long.numberOfTrailingZeros(word))) {
+							return false;
+						}
+						word &= word - 1;
+					}
+				}
+				return true;
+			}
+			for (int i = 0; i < cardinality; i++) {
+				if (!visitor.test(high | values[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	public CompressedBitmap() {
+		this.keys = new char[4];
+		this.chunks = new Chunk[4];
+		this.chunkCount = 0;
+	}
+
+	public boolean add(int value) {
+		checkValue(value);
+		char high = (char) (value >>> 16);
+		int index = Arrays.binarySearch(keys, 0, chunkCount, high);
+		if (index < 0) {
+			index = -index - 1;
+			insertChunk(index, high, Chunk.ofArray(new char[4], 0));
+		}
+		return chunks[index].add((char) value);
+	}
+
+	public boolean remove(int value) {
+		checkValue(value);
+		int index = Arrays.binarySearch(keys, 0, chunkCount, (char) (value >>> 16));
+		if (index < 0) {
+			return false;
+		}
+		boolean removed = chunks[index].remove((char) value);
+		if (chunks[index].cardinality == 0) {
+			System.arraycopy(keys, index + 1, keys, index, chunkCount - index - 1);
+			System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+			chunks[--chunkCount] = null;
+		}
+		return removed;
+	}
+
+	public boolean contains(int value) {
+		if (value < 0) {
+			return false;
+		}
+		int index = Arrays.binarySearch(keys, 0, chunkCount, (char) (value >>> 16));
+		return index >= 0 && chunks[index].contains((char) value);
+	}
+
+	public int cardinality() {
+		int total = 0;
+		for (int i = 0; i < chunkCount; i++) {
+			total += chunks[i].cardinality;
+		}
+		return total;
+	}
+
+	public boolean isEmpty() {
+		return chunkCount == 0;
+	}
+
+	// Values present in both bitmaps
+	public CompressedBitmap and(CompressedBitmap other) {
+		CompressedBitmap result = new CompressedBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < chunkCount && j < other.chunkCount) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			} else if (keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				Chunk chunk = chunks[i].and(other.chunks[j]);
+				if (chunk.cardinality > 0) {
+					result.insertChunk(result.chunkCount, keys[i], chunk);
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	// Values present in either bitmap
+	public CompressedBitmap or(CompressedBitmap other) {
+		CompressedBitmap result = new CompressedBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < chunkCount || j < other.chunkCount) {
+			if (j == other.chunkCount || (i < chunkCount && keys[i] < other.keys[j])) {
+				result.insertChunk(result.chunkCount, keys[i], chunks[i].copy());
+				i++;
+			} else if (i == chunkCount || keys[i] > other.keys[j]) {
+				result.insertChunk(result.chunkCount, other.keys[j], other.chunks[j].copy());
+				j++;
+			} else {
+				result.insertChunk(result.chunkCount, keys[i], chunks[i].or(other.chunks[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	// Visit values in ascending order until the visitor returns false
+	public void forEach(IntPredicate visitor) {
+		for (int i = 0; i < chunkCount; i++) {
+			if (!chunks[i].forEach(keys[i] << 16, visitor)) {
+				return;
+			}
+		}
+	}
+
+	private void insertChunk(int index, char high, Chunk chunk) {
+		if (chunkCount == keys.length) {
+			keys = Arrays.copyOf(keys, keys.length * 2);
+			chunks = Arrays.copyOf(chunks, chunks.length * 2);
+		}
+		System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+		System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+		keys[index] = high;
+		chunks[index] = chunk;
+		chunkCount++;
+	}
+
+	private static void checkValue(int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative value: " + value);
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package datastructures;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import library.models.Book;
+
+// Facet engine for combined filters. Every book gets a dense int id and is added to
+// one compressed bitmap per facet value (category, status, publication year);
+// a query intersects the bitmaps it needs, smallest first.
+public class FacetIndex {
+	private final Map<String, Integer> denseIds;
+	private final List<Book> books; // Indexed by dense id, null for free slots
+	private final Deque<Integer> freeIds;
+	private final CompressedBitmap all;
+	private final Map<String, CompressedBitmap> byCategory;
+	private final Map<String, CompressedBitmap> byStatus;
+	private final TreeMap<Integer, CompressedBitmap> byYear;
+	private final ReadWriteLock lock;
+
+	public FacetIndex() {
+		this.denseIds = new HashMap<>();
+		this.books = new ArrayList<>();
+		this.freeIds = new ArrayDeque<>();
+		this.all = new CompressedBitmap();
+		this.byCategory = new HashMap<>();
+		this.byStatus = new HashMap<>();
+		this.byYear = new TreeMap<>();
+		this.lock = new ReentrantReadWriteLock();
+	}
+
+	// Add a book, or move an indexed one to its new facet values
+	public void add(Book book) {
+		lock.writeLock().lock();
+		try {
+			Integer id = denseIds.get(book.getId());
+			if (id != null) {
+				unlink(id, books.get(id));
+			} else {
+				// Reuse freed ids so the id space (and the bitmaps) stay dense
+				id = freeIds.isEmpty() ? books.size() : freeIds.pop();
+				if (id == books.size()) {
+					books.add(null);
+				}
+				denseIds.put(book.getId(), id);
+			}
+			books.set(id, book);
+			all.add(id);
+			bitmapFor(byCategory, book.getCategory()).add(id);
+			bitmapFor(byStatus, book.getStatus()).add(id);
+			byYear.computeIfAbsent(book.getYear(), year -> new CompressedBitmap()).add(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(String bookId) {
+		lock.writeLock().lock();
+		try {
+			Integer id = denseIds.remove(bookId);
+			if (id == null) {
+				return;
+			}
+			unlink(id, books.get(id));
+			books.set(id, null);
+			freeIds.push(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Books matching every given facet (null means unfiltered). Year bounds are
+	// inclusive; the rating bound is checked while streaming since it changes often.
+	public List<Book> query(String category, String status, Integer fromYear, Integer toYear, Double minRating,
+			int page, int size) {
+		List<Book> result = new ArrayList<>();
+		if (page < 0 || size <= 0) {
+			return result;
+		}
+
+		lock.readLock().lock();
+		try {
+			List<CompressedBitmap> filters = new ArrayList<>();
+			if (category != null) {
+				filters.add(byCategory.getOrDefault(category, new CompressedBitmap()));
+			}
+			if (status != null) {
+				filters.add(byStatus.getOrDefault(status, new CompressedBitmap()));
+			}
+			if (fromYear != null || toYear != null) {
+				int from = fromYear != null ? fromYear : Integer.MIN_VALUE;
+				int to = toYear != null ? toYear : Integer.MAX_VALUE;
+				CompressedBitmap years = new CompressedBitmap();
+				if (from <= to) {
+					for (CompressedBitmap year : byYear.subMap(from, true, to, true).values()) {
+						years = years.or(year);
+					}
+				}
+				filters.add(years);
+			}
+
+			// Intersect smallest first so intermediate results shrink as fast as possible
+			filters.sort(Comparator.comparingInt(CompressedBitmap::cardinality));
+			CompressedBitmap matches = filters.isEmpty() ? all : filters.get(0);
+			for (int i = 1; i < filters.size() && !matches.isEmpty(); i++) {
+				matches = matches.and(filters.get(i));
+			}
+
+			int[] toSkip = { page * size };
+			matches.forEach(id -> {
+				Book book = books.get(id);
+				if (minRating != null && book.getAverageRating() < minRating) {
+					return true;
+				}
+				if (toSkip[0] > 0) {
+					toSkip[0]--;
+					return true;
+				}
+				result.add(book);
+				return result.size() < size;
+			});
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Number of indexed books
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return denseIds.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void unlink(int id, Book book) {
+		all.remove(id);
+		removeFrom(byCategory, book.getCategory(), id);
+		removeFrom(byStatus, book.getStatus(), id);
+		CompressedBitmap year = byYear.get(book.getYear());
+		if (year != null && year.remove(id) && year.isEmpty()) {
+			byYear.remove(book.getYear());
+		}
+	}
+
+	private static CompressedBitmap bitmapFor(Map<String, CompressedBitmap> facet, String value) {
+		return facet.computeIfAbsent(String.valueOf(value), key -> new CompressedBitmap());
+	}
+
+	private static void removeFrom(Map<String, CompressedBitmap> facet, String value, int id) {
+		CompressedBitmap bitmap = facet.get(String.valueOf(value));
+		if (bitmap != null && bitmap.remove(id) && bitmap.isEmpty()) {
+			facet.remove(String.valueOf(value));
+		}
+	}
+}
@@ -0,0 +1,299 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import library.models.Book;
+
+// Embedded full-text index over title, author and category with BM25 ranking.
+// Books get dense, increasing doc ids so posting lists can store doc id deltas
+// as varints; a removed book leaves a tombstone until the next compaction.
+public class FullTextIndex {
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+	private static final int MIN_COMPACTION = 1024;
+
+	private final Map<String, PostingList> postings;
+	private final Map<String, Integer> docIdsByBookId;
+	private final List<Book> docs; // Indexed by doc id, null once removed
+	private int[] docLengths;
+	private long totalLength;
+	private int liveDocs;
+	private final ReadWriteLock lock;
+
+	// Varint encoded (doc id delta, term frequency) pairs for one term
+	private static class PostingList {
+		private byte[] data = new byte[8];
+		private int length;
+		private int lastDocId = -1;
+		private int documentFrequency; // Live documents only
+
+		void append(int docId, int termFrequency) {
+			writeVarint(docId - lastDocId);
+			writeVarint(termFrequency);
+			lastDocId = docId;
+			documentFrequency++;
+		}
+
+		private void writeVarint(int value) {
+			if (length + 5 > data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+			while ((value & ~0x7F) != 0) {
+				data[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			data[length++] = (byte) value;
+		}
+	}
+
+	public FullTextIndex() {
+		this.postings = new HashMap<>();
+		this.docIdsByBookId = new HashMap<>();
+		this.docs = new ArrayList<>();
+		this.docLengths = new int[16];
+		this.totalLength = 0;
+		this.liveDocs = 0;
+		this.lock = new ReentrantReadWriteLock();
+	}
+
+	// Lower-cased letter/digit runs; single characters carry no signal and are skipped
+	public static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null) {
+			return tokens;
+		}
+		String lower = text.toLowerCase(Locale.ROOT);
+		int start = -1;
+		for (int i = 0; i <= lower.length(); i++) {
+			boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+			if (wordChar && start < 0) {
+				start = i;
+			} else if (!wordChar && start >= 0) {
+				if (i - start > 1) {
+					tokens.add(lower.substring(start, i));
+				}
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+
+	// Add a book (or replace the indexed version with the same id)
+	public void add(Book book) {
+		lock.writeLock().lock();
+		try {
+			removeDoc(book.getId());
+			addDoc(book);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Swap in a new version of a book, re-tokenizing only if its text changed
+	public void replace(Book previousBook, Book book) {
+		lock.writeLock().lock();
+		try {
+			Integer docId = docIdsByBookId.get(previousBook.getId());
+			if (docId != null && previousBook.getId().equals(book.getId()) && sameText(previousBook, book)) {
+				docs.set(docId, book);
+				return;
+			}
+			removeDoc(previousBook.getId());
+			removeDoc(book.getId());
+			addDoc(book);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Remove a book by id
+	public void remove(String bookId) {
+		lock.writeLock().lock();
+		try {
+			removeDoc(bookId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Ranked search, returns one page of books ordered by BM25 score
+	public List<Book> search(String query, int page, int size) {
+		List<Book> result = new ArrayList<>();
+		if (page < 0 || size <= 0) {
+			return result;
+		}
+
+		lock.readLock().lock();
+		try {
+			if (liveDocs == 0) {
+				return result;
+			}
+			double averageLength = (double) totalLength / liveDocs;
+			Map<Integer, Double> scores = new HashMap<>();
+
+			for (String term : new LinkedHashSet<>(tokenize(query))) {
+				PostingList list = postings.get(term);
+				if (list == null || list.documentFrequency == 0) {
+					continue;
+				}
+				double df = list.documentFrequency;
+				double idf = Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+
+				// Decode the (delta, tf) pairs in place
+				int position = 0;
+				int docId = -1;
+				while (position < list.length) {
+					int value = 0;
+					int shift = 0;
+					byte current;
+					do {
+						current = list.data[position++];
+						value |= (current & 0x7F) << shift;
+						shift += 7;
+					} while (current < 0);
+					docId += value;
+
+					int termFrequency = 0;
+					shift = 0;
+					do {
+						current = list.data[position++];
+						termFrequency |= (current & 0x7F) << shift;
+						shift += 7;
+					} while (current < 0);
+
+					if (docs.get(docId) == null) {
+						continue;
+					}
+					double norm = K1 * (1 - B + B * docLengths[docId] / averageLength);
+					double score = idf * termFrequency * (K1 + 1) / (termFrequency + norm);
+					scores.merge(docId, score, Double::sum);
+				}
+			}
+
+			// Keep only the best (page + 1) * size hits in a min-heap; in long, a far
+			// page would overflow, and a page past the last hit is empty
+			long skipped = (long) page * size;
+			if (skipped >= scores.size()) {
+				return result;
+			}
+			int wanted = (int) Math.min(skipped + size, scores.size());
+			PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(
+					(a, b) -> a.getValue().equals(b.getValue()) ? Integer.compare(b.getKey(), a.getKey())
+							: Double.compare(a.getValue(), b.getValue()));
+			for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+				best.add(entry);
+				if (best.size() > wanted) {
+					best.poll();
+				}
+			}
+
+			List<Integer> ranked = new ArrayList<>(best.size());
+			while (!best.isEmpty()) {
+				ranked.add(best.poll().getKey());
+			}
+			for (int i = ranked.size() - 1 - (int) skipped; i >= 0 && result.size() < size; i--) {
+				result.add(docs.get(ranked.get(i)));
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Number of searchable books
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return liveDocs;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void addDoc(Book book) {
+		List<String> tokens = documentTokens(book);
+		Map<String, Integer> frequencies = new HashMap<>();
+		for (String token : tokens) {
+			frequencies.merge(token, 1, Integer::sum);
+		}
+
+		int docId = docs.size();
+		docs.add(book);
+		if (docId == docLengths.length) {
+			docLengths = Arrays.copyOf(docLengths, docLengths.length * 2);
+		}
+		docLengths[docId] = tokens.size();
+		docIdsByBookId.put(book.getId(), docId);
+		totalLength += tokens.size();
+		liveDocs++;
+
+		for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+			postings.computeIfAbsent(entry.getKey(), key -> new PostingList()).append(docId, entry.getValue());
+		}
+	}
+
+	private void removeDoc(String bookId) {
+		Integer docId = docIdsByBookId.remove(bookId);
+		if (docId == null) {
+			return;
+		}
+		Book book = docs.set(docId, null);
+		totalLength -= docLengths[docId];
+		liveDocs--;
+
+		// Keep document frequencies exact for the live documents
+		Set<String> terms = new LinkedHashSet<>(documentTokens(book));
+		for (String term : terms) {
+			PostingList list = postings.get(term);
+			if (list != null) {
+				list.documentFrequency--;
+			}
+		}
+
+		if (docs.size() - liveDocs > Math.max(MIN_COMPACTION, liveDocs)) {
+			compact();
+		}
+	}
+
+	// Rebuild postings without tombstones, renumbering the live documents
+	private void compact() {
+		List<Book> live = new ArrayList<>(liveDocs);
+		for (Book book : docs) {
+			if (book != null) {
+				live.add(book);
+			}
+		}
+		postings.clear();
+		docIdsByBookId.clear();
+		docs.clear();
+		docLengths = new int[Math.max(16, live.size())];
+		totalLength = 0;
+		liveDocs = 0;
+		for (Book book : live) {
+			addDoc(book);
+		}
+	}
+
+	private static List<String> documentTokens(Book book) {
+		List<String> tokens = tokenize(book.getTitle());
+		tokens.addAll(tokenize(book.getAuthor()));
+		tokens.addAll(tokenize(book.getCategory()));
+		return tokens;
+	}
+
+	private static boolean sameText(Book a, Book b) {
+		return java.util.Objects.equals(a.getTitle(), b.getTitle())
+				&& java.util.Objects.equals(a.getAuthor(), b.getAuthor())
+				&& java.util.Objects.equals(a.getCategory(), b.getCategory());
+	}
+}
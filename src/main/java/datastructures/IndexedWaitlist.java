@@ -0,0 +1,247 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Waitlist ordered by a long key (ties in arrival order) with an id -> node map, so
+// position lookups and removals by id are O(log n). Backed by a treap whose nodes
+// count their subtree size. Each owner holds at most one entry.
+public class IndexedWaitlist<T> {
+	private Node<T> root;
+	private final Map<String, Node<T>> byId;
+	private final Map<String, Node<T>> byOwner;
+	private long nextSequence;
+
+	private static class Node<T> {
+		private final String id;
+		private final String owner;
+		private final long key;
+		private final long sequence; // Arrival order, breaks key ties
+		private final T value;
+		private final int priority; // Random heap priority that keeps the treap balanced
+		private Node<T> left, right;
+		private int size;
+
+		Node(String id, String owner, long key, long sequence, T value) {
+			this.id = id;
+			this.owner = owner;
+			this.key = key;
+			this.sequence = sequence;
+			this.value = value;
+			this.priority = ThreadLocalRandom.current().nextInt();
+			this.size = 1;
+		}
+	}
+
+	public IndexedWaitlist() {
+		this.root = null;
+		this.byId = new HashMap<>();
+		this.byOwner = new HashMap<>();
+		this.nextSequence = 0;
+	}
+
+	// Add an entry; returns false if the id or the owner is already waiting
+	public synchronized boolean add(String id, String owner, long key, T value) {
+		if (byId.containsKey(id) || (owner != null && byOwner.containsKey(owner))) {
+			return false;
+		}
+		Node<T> node = new Node<>(id, owner, key, nextSequence++, value);
+		root = insert(root, node);
+		byId.put(id, node);
+		if (owner != null) {
+			byOwner.put(owner, node);
+		}
+		return true;
+	}
+
+	// Remove by id, returns the removed value or null
+	public synchronized T remove(String id) {
+		Node<T> node = byId.remove(id);
+		if (node == null) {
+			return null;
+		}
+		if (node.owner != null) {
+			byOwner.remove(node.owner);
+		}
+		root = delete(root, node);
+		return node.value;
+	}
+
+	// Move an entry to a new key (and value), keeping its arrival order for ties.
+	// Returns false if the id is not waiting.
+	public synchronized boolean changeKey(String id, long key, T value) {
+		Node<T> node = byId.get(id);
+		if (node == null) {
+			return false;
+		}
+		root = delete(root, node);
+		Node<T> moved = new Node<>(id, node.owner, key, node.sequence, value);
+		root = insert(root, moved);
+		byId.put(id, moved);
+		if (moved.owner != null) {
+			byOwner.put(moved.owner, moved);
+		}
+		return true;
+	}
+
+	public synchronized T get(String id) {
+		Node<T> node = byId.get(id);
+		return node != null ? node.value : null;
+	}
+
+	public synchronized T peekFirst() {
+		Node<T> node = first();
+		return node != null ? node.value : null;
+	}
+
+	public synchronized T pollFirst() {
+		Node<T> node = first();
+		return node != null ? remove(node.id) : null;
+	}
+
+	// 0-based position of an entry, -1 if it is not waiting
+	public synchronized int position(String id) {
+		Node<T> node = byId.get(id);
+		return node != null ? rank(node) : -1;
+	}
+
+	// 0-based position of an owner's entry, -1 if the owner is not waiting
+	public synchronized int positionOfOwner(String owner) {
+		Node<T> node = byOwner.get(owner);
+		return node != null ? rank(node) : -1;
+	}
+
+	public synchronized T getByOwner(String owner) {
+		Node<T> node = byOwner.get(owner);
+		return node != null ? node.value : null;
+	}
+
+	public synchronized int size() {
+		return size(root);
+	}
+
+	public synchronized boolean isEmpty() {
+		return root == null;
+	}
+
+	// Values in waiting order
+	public synchronized List<T> toList() {
+		List<T> values = new ArrayList<>(size(root));
+		collect(root, values);
+		return values;
+	}
+
+	private Node<T> first() {
+		Node<T> node = root;
+		while (node != null && node.left != null) {
+			node = node.left;
+		}
+		return node;
+	}
+
+	private int rank(Node<T> target) {
+		int rank = 0;
+		Node<T> node = root;
+		while (node != null) {
+			int compareResult = compare(target, node);
+			if (compareResult == 0) {
+				return rank + size(node.left);
+			}
+			if (compareResult < 0) {
+				node = node.left;
+			} else {
+				rank += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return -1;
+	}
+
+	private Node<T> insert(Node<T> node, Node<T> added) {
+		if (node == null) {
+			return added;
+		}
+		if (compare(added, node) < 0) {
+			node.left = insert(node.left, added);
+			if (node.left.priority > node.priority) {
+				node = rotateRight(node);
+			}
+		} else {
+			node.right = insert(node.right, added);
+			if (node.right.priority > node.priority) {
+				node = rotateLeft(node);
+			}
+		}
+		return update(node);
+	}
+
+	private Node<T> delete(Node<T> node, Node<T> removed) {
+		if (node == null) {
+			return null;
+		}
+		int compareResult = compare(removed, node);
+		if (compareResult < 0) {
+			node.left = delete(node.left, removed);
+		} else if (compareResult > 0) {
+			node.right = delete(node.right, removed);
+		} else {
+			return merge(node.left, node.right);
+		}
+		return update(node);
+	}
+
+	// Join two treaps where everything in left comes before everything in right
+	private Node<T> merge(Node<T> left, Node<T> right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		if (left.priority > right.priority) {
+			left.right = merge(left.right, right);
+			return update(left);
+		}
+		right.left = merge(left, right.left);
+		return update(right);
+	}
+
+	private Node<T> rotateRight(Node<T> node) {
+		Node<T> left = node.left;
+		node.left = left.right;
+		left.right = update(node);
+		return update(left);
+	}
+
+	private Node<T> rotateLeft(Node<T> node) {
+		Node<T> right = node.right;
+		node.right = right.left;
+		right.left = update(node);
+		return update(right);
+	}
+
+	private void collect(Node<T> node, List<T> values) {
+		if (node != null) {
+			collect(node.left, values);
+			values.add(node.value);
+			collect(node.right, values);
+		}
+	}
+
+	private static <T> Node<T> update(Node<T> node) {
+		node.size = size(node.left) + size(node.right) + 1;
+		return node;
+	}
+
+	private static int size(Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static int compare(Node<?> a, Node<?> b) {
+		int compareResult = Long.compare(a.key, b.key);
+		return compareResult != 0 ? compareResult : Long.compare(a.sequence, b.sequence);
+	}
+}
@@ -0,0 +1,48 @@
+package datastructures;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Term -> ids posting sets. Reads are safe from any thread, writers are expected
+// to be serialized by the owner of the index.
+public class InvertedIndex {
+	private final Map<String, Set<String>> postings;
+
+	public InvertedIndex() {
+		this.postings = new ConcurrentHashMap<>();
+	}
+
+	// Add an id under a term, returns true if the term is new to the index
+	public boolean add(String term, String id) {
+		boolean[] created = new boolean[1];
+		postings.computeIfAbsent(term, key -> {
+			created[0] = true;
+			return ConcurrentHashMap.newKeySet();
+		}).add(id);
+		return created[0];
+	}
+
+	// Remove an id from a term, returns true if the term has no ids left
+	public boolean remove(String term, String id) {
+		boolean[] emptied = new boolean[1];
+		postings.computeIfPresent(term, (key, ids) -> {
+			ids.remove(id);
+			emptied[0] = ids.isEmpty();
+			return emptied[0] ? null : ids;
+		});
+		return emptied[0];
+	}
+
+	// Ids indexed under a term (read-only view)
+	public Set<String> get(String term) {
+		Set<String> ids = postings.get(term);
+		return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+	}
+
+	// Number of distinct terms
+	public int termCount() {
+		return postings.size();
+	}
+}
@@ -0,0 +1,350 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Item-item similarity from implicit feedback: a reader either interacted with a book
+// (borrowed it, liked it, ...) or not, and two books are as similar as the cosine of
+// their reader sets, |A and B| / sqrt(|A| |B|). Books and readers get dense int ids; the
+// reader-book matrix is kept both ways as int arrays, and each book keeps only its
+// top neighbors. A full rebuild computes every row in parallel with fork-join; a
+// single interaction recomputes the changed book's row and moves its score in the
+// lists of the books it shares readers with. A neighbor that only went down can stay
+// listed ahead of a book that was not listed until the next rebuild.
+public class ItemSimilarity {
+	// Books per fork-join leaf, each leaf allocates one counter array
+	private static final int LEAF_BOOKS = 64;
+	private static final Neighbors NO_NEIGHBORS = new Neighbors(new int[0], new float[0]);
+
+	private final int neighborsPerBook;
+	private final Map<String, Integer> bookIndex;
+	private final Map<String, Integer> userIndex;
+	// Per reader: dense ids of their books, and the sources (bit per kind) of each
+	private int[][] userBooks;
+	private byte[][] userSources;
+	private int[] userBookCount;
+	// Per book: dense ids of its readers
+	private int[][] bookUsers;
+	private int[] bookUserCount;
+	// Top neighbors per book, each list replaced whole so reads take no lock; both
+	// arrays grow by doubling and are indexed by dense book id
+	private volatile AtomicReferenceArray<Neighbors> neighbors;
+	private volatile String[] bookNames;
+	// Counters for incremental updates, all zero between two updates
+	private int[] counts;
+	private int[] touched;
+
+	public record Neighbor(String bookId, double similarity) {
+	}
+
+	// Best first, never changed once published
+	private record Neighbors(int[] books, float[] scores) {
+	}
+
+	public ItemSimilarity(int neighborsPerBook) {
+		if (neighborsPerBook <= 0) {
+			throw new IllegalArgumentException("neighborsPerBook must be positive");
+		}
+		this.neighborsPerBook = neighborsPerBook;
+		this.bookIndex = new ConcurrentHashMap<>();
+		this.userIndex = new HashMap<>();
+		this.userBooks = new int[0][];
+		this.userSources = new byte[0][];
+		this.userBookCount = new int[0];
+		this.bookUsers = new int[0][];
+		this.bookUserCount = new int[0];
+		this.neighbors = new AtomicReferenceArray<>(16);
+		this.bookNames = new String[16];
+		this.counts = new int[16];
+		this.touched = new int[16];
+	}
+
+	// Record an interaction without touching the neighbor lists, for bulk loads
+	// followed by rebuild(). source is a bit, a book stays linked to a reader while
+	// any of its bits is set.
+	public synchronized void load(String userId, String bookId, int source) {
+		link(user(userId), book(bookId), source);
+	}
+
+	// Record an interaction and update the neighbor lists if it is a new one
+	public synchronized void add(String userId, String bookId, int source) {
+		int user = user(userId);
+		int book = book(bookId);
+		if (link(user, book, source)) {
+			update(book);
+		}
+	}
+
+	// Clear one source of an interaction, and unlink the book once none is left
+	public synchronized void remove(String userId, String bookId, int source) {
+		Integer user = userIndex.get(userId);
+		Integer book = bookIndex.get(bookId);
+		if (user == null || book == null) {
+			return;
+		}
+		int slot = slotOf(user, book);
+		if (slot < 0) {
+			return;
+		}
+		userSources[user][slot] &= (byte) ~source;
+		if (userSources[user][slot] != 0) {
+			return;
+		}
+		// Swap with the last entry, the order within a row does not matter
+		int last = --userBookCount[user];
+		userBooks[user][slot] = userBooks[user][last];
+		userSources[user][slot] = userSources[user][last];
+		int[] readers = bookUsers[book];
+		for (int i = 0; i < bookUserCount[book]; i++) {
+			if (readers[i] == user) {
+				readers[i] = readers[--bookUserCount[book]];
+				break;
+			}
+		}
+		update(book);
+		// Books the reader still has may now share nobody with this one
+		for (int i = 0; i < userBookCount[user]; i++) {
+			int other = userBooks[user][i];
+			if (scoreOf(other, book) > 0 && shared(book, other) == 0) {
+				neighbors.set(other, withScore(neighbors.get(other), book, 0));
+			}
+		}
+	}
+
+	// Recompute every neighbor list, one fork-join task per range of books
+	public synchronized void rebuild() {
+		int books = bookIndex.size();
+		AtomicReferenceArray<Neighbors> rebuilt = new AtomicReferenceArray<>(neighbors.length());
+		ForkJoinPool.commonPool().invoke(new RowTask(0, books, books, rebuilt));
+		neighbors = rebuilt;
+	}
+
+	// The most similar books, best first
+	public List<Neighbor> similar(String bookId, int limit) {
+		List<Neighbor> result = new ArrayList<>();
+		Integer book = bookIndex.get(bookId);
+		if (book == null) {
+			return result;
+		}
+		// Lists only name books published before them, so read the names last
+		Neighbors list = neighbors.get(book);
+		String[] names = bookNames;
+		for (int i = 0; list != null && i < list.books().length && result.size() < limit; i++) {
+			result.add(new Neighbor(names[list.books()[i]], list.scores()[i]));
+		}
+		return result;
+	}
+
+	public int books() {
+		return bookIndex.size();
+	}
+
+	public synchronized int users() {
+		return userIndex.size();
+	}
+
+	private int user(String userId) {
+		Integer user = userIndex.get(userId);
+		if (user != null) {
+			return user;
+		}
+		user = userIndex.size();
+		userIndex.put(userId, user);
+		if (user == userBooks.length) {
+			int capacity = Math.max(16, user * 2);
+			userBooks = Arrays.copyOf(userBooks, capacity);
+			userSources = Arrays.copyOf(userSources, capacity);
+			userBookCount = Arrays.copyOf(userBookCount, capacity);
+		}
+		userBooks[user] = new int[4];
+		userSources[user] = new byte[4];
+		return user;
+	}
+
+	private int book(String bookId) {
+		Integer book = bookIndex.get(bookId);
+		if (book != null) {
+			return book;
+		}
+		book = bookIndex.size();
+		if (book == bookUsers.length) {
+			int capacity = Math.max(16, book * 2);
+			bookUsers = Arrays.copyOf(bookUsers, capacity);
+			bookUserCount = Arrays.copyOf(bookUserCount, capacity);
+		}
+		bookUsers[book] = new int[4];
+		if (book == neighbors.length()) {
+			AtomicReferenceArray<Neighbors> grown = new AtomicReferenceArray<>(book * 2);
+			for (int i = 0; i < book; i++) {
+				grown.set(i, neighbors.get(i));
+			}
+			neighbors = grown;
+			bookNames = Arrays.copyOf(bookNames, book * 2);
+			counts = new int[book * 2];
+			touched = new int[book * 2];
+		}
+		// Name first, then the lists that may refer to it and the index readers start from
+		bookNames[book] = bookId;
+		bookIndex.put(bookId, book);
+		return book;
+	}
+
+	// True if the reader had no source for the book yet
+	private boolean link(int user, int book, int source) {
+		int slot = slotOf(user, book);
+		if (slot >= 0) {
+			userSources[user][slot] |= (byte) source;
+			return false;
+		}
+		int count = userBookCount[user];
+		if (count == userBooks[user].length) {
+			userBooks[user] = Arrays.copyOf(userBooks[user], count * 2);
+			userSources[user] = Arrays.copyOf(userSources[user], count * 2);
+		}
+		userBooks[user][count] = book;
+		userSources[user][count] = (byte) source;
+		userBookCount[user]++;
+		if (bookUserCount[book] == bookUsers[book].length) {
+			bookUsers[book] = Arrays.copyOf(bookUsers[book], bookUserCount[book] * 2);
+		}
+		bookUsers[book][bookUserCount[book]++] = user;
+		return true;
+	}
+
+	// Readers rarely have many books, a scan beats a per-reader hash
+	private int slotOf(int user, int book) {
+		for (int i = 0; i < userBookCount[user]; i++) {
+			if (userBooks[user][i] == book) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int shared(int book, int other) {
+		int count = 0;
+		for (int i = 0; i < bookUserCount[book]; i++) {
+			if (slotOf(bookUsers[book][i], other) >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private float scoreOf(int book, int other) {
+		Neighbors list = neighbors.get(book);
+		for (int i = 0; list != null && i < list.books().length; i++) {
+			if (list.books()[i] == other) {
+				return list.scores()[i];
+			}
+		}
+		return 0;
+	}
+
+	// The book's reader count changed, so does its cosine with every book it shares a
+	// reader with: recompute its row and pass each score on to the other side
+	private void update(int book) {
+		neighbors.set(book, row(book, counts, touched, true));
+	}
+
+	// Cosine with every book sharing a reader, in one pass over the readers' rows; the
+	// counters are zeroed again on the way out so a leaf can reuse them
+	private Neighbors row(int book, int[] counts, int[] touched, boolean mirror) {
+		int touchedCount = 0;
+		for (int i = 0; i < bookUserCount[book]; i++) {
+			int user = bookUsers[book][i];
+			for (int j = 0; j < userBookCount[user]; j++) {
+				int other = userBooks[user][j];
+				if (other != book && counts[other]++ == 0) {
+					touched[touchedCount++] = other;
+				}
+			}
+		}
+		int[] top = new int[neighborsPerBook];
+		float[] scores = new float[neighborsPerBook];
+		int size = 0;
+		for (int i = 0; i < touchedCount; i++) {
+			int other = touched[i];
+			float score = (float) (counts[other] / Math.sqrt((double) bookUserCount[book] * bookUserCount[other]));
+			counts[other] = 0;
+			if (mirror) {
+				neighbors.set(other, withScore(neighbors.get(other), book, score));
+			}
+			size = offer(top, scores, size, other, score);
+		}
+		return size == 0 ? NO_NEIGHBORS : new Neighbors(Arrays.copyOf(top, size), Arrays.copyOf(scores, size));
+	}
+
+	// Insert into a best-first bounded list, ties go to the lower id; returns the new size
+	private static int offer(int[] top, float[] scores, int size, int book, float score) {
+		int position = size;
+		while (position > 0 && (scores[position - 1] < score
+				|| (scores[position - 1] == score && top[position - 1] > book))) {
+			position--;
+		}
+		if (position == top.length) {
+			return size;
+		}
+		int moved = Math.min(size, top.length - 1) - position;
+		System.arraycopy(top, position, top, position + 1, moved);
+		System.arraycopy(scores, position, scores, position + 1, moved);
+		top[position] = book;
+		scores[position] = score;
+		return Math.min(size + 1, top.length);
+	}
+
+	// Copy of the list with the book's score replaced, or removed for a score of 0
+	private Neighbors withScore(Neighbors list, int book, float score) {
+		if (list == null) {
+			list = NO_NEIGHBORS;
+		}
+		int[] top = new int[neighborsPerBook];
+		float[] scores = new float[neighborsPerBook];
+		int size = 0;
+		for (int i = 0; i < list.books().length; i++) {
+			if (list.books()[i] != book) {
+				size = offer(top, scores, size, list.books()[i], list.scores()[i]);
+			}
+		}
+		if (score > 0) {
+			size = offer(top, scores, size, book, score);
+		}
+		return size == 0 ? NO_NEIGHBORS : new Neighbors(Arrays.copyOf(top, size), Arrays.copyOf(scores, size));
+	}
+
+	// Runs under the monitor of rebuild(), the arrays are only read
+	private class RowTask extends RecursiveAction {
+		private final int from;
+		private final int to;
+		private final int books;
+		private final AtomicReferenceArray<Neighbors> target;
+
+		RowTask(int from, int to, int books, AtomicReferenceArray<Neighbors> target) {
+			this.from = from;
+			this.to = to;
+			this.books = books;
+			this.target = target;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= LEAF_BOOKS) {
+				int[] counts = new int[books];
+				int[] touched = new int[books];
+				for (int book = from; book < to; book++) {
+					target.set(book, row(book, counts, touched, false));
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new RowTask(from, middle, books, target), new RowTask(middle, to, books, target));
+		}
+	}
+}
@@ -2,6 +2,7 @@ package datastructures;
 
 public class LinkedListSimple<T> {
 	private Node<T> head;
+	private Node<T> tail;
 	private int size;
 
 	// Node class
@@ -26,6 +27,7 @@ public class LinkedListSimple<T> {
 
 	public LinkedListSimple() {
 		this.head = null;
+		this.tail = null;
 		this.size = 0;
 	}
 
@@ -36,12 +38,9 @@ public class LinkedListSimple<T> {
 		if (head == null) {
 			head = newNode;
 		} else {
-			Node<T> current = head;
-			while (current.next != null) {
-				current = current.next;
-			}
-			current.next = newNode;
+			tail.next = newNode;
 		}
+		tail = newNode;
 		size++;
 	}
 
@@ -50,6 +49,9 @@ public class LinkedListSimple<T> {
 		Node<T> newNode = new Node<>(data);
 		newNode.next = head;
 		head = newNode;
+		if (tail == null) {
+			tail = newNode;
+		}
 		size++;
 	}
 
@@ -61,6 +63,9 @@ public class LinkedListSimple<T> {
 
 		if (head.data.equals(data)) {
 			head = head.next;
+			if (head == null) {
+				tail = null;
+			}
 			size--;
 			return true;
 		}
@@ -71,6 +76,9 @@ public class LinkedListSimple<T> {
 		}
 
 		if (current.next != null) {
+			if (current.next == tail) {
+				tail = current;
+			}
 			current.next = current.next.next;
 			size--;
 			return true;
@@ -0,0 +1,152 @@
+package datastructures;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel. Level 0 has wheelSize slots of tickMillis each; every
+// next level is created on demand with slots as wide as the whole level below it.
+// An entry waits in the coarsest level that can hold it and is moved down when its
+// slot comes up, so a tick costs O(1) plus the entries that fire or move. Entries
+// fire at the first tick boundary at or after their deadline, never before it.
+// Not thread safe.
+public class TimingWheel<T> {
+	private final long tickMillis;
+	private final int wheelSize;
+	private final long interval; // Time covered by this level
+	private final Entry<T>[] slots; // Sentinels of circular doubly linked lists
+	private final Map<String, Entry<T>> entries; // Shared by all levels
+	private long currentTime; // Start of the current tick, a multiple of tickMillis
+	private TimingWheel<T> overflow;
+
+	private static class Entry<T> {
+		private final String id;
+		private final long expiry; // Deadline rounded up to a level 0 tick
+		private final T value;
+		private Entry<T> previous;
+		private Entry<T> next;
+
+		Entry(String id, long expiry, T value) {
+			this.id = id;
+			this.expiry = expiry;
+			this.value = value;
+			this.previous = this;
+			this.next = this;
+		}
+
+		void unlink() {
+			previous.next = next;
+			next.previous = previous;
+			previous = this;
+			next = this;
+		}
+	}
+
+	public TimingWheel(long tickMillis, int wheelSize, long startTime) {
+		this(tickMillis, wheelSize, startTime, new HashMap<>());
+	}
+
+	@SuppressWarnings("unchecked")
+	private TimingWheel(long tickMillis, int wheelSize, long startTime, Map<String, Entry<T>> entries) {
+		if (tickMillis <= 0 || wheelSize < 2) {
+			throw new IllegalArgumentException("Illegal wheel: " + wheelSize + " x " + tickMillis + "ms");
+		}
+		this.tickMillis = tickMillis;
+		this.wheelSize = wheelSize;
+		this.interval = tickMillis * wheelSize;
+		this.slots = new Entry[wheelSize];
+		for (int i = 0; i < wheelSize; i++) {
+			slots[i] = new Entry<>(null, 0, null);
+		}
+		this.entries = entries;
+		this.currentTime = startTime - Math.floorMod(startTime, tickMillis);
+	}
+
+	// Schedule (or reschedule) an entry. Returns false, without keeping it, if the
+	// deadline has already been reached.
+	public boolean schedule(String id, long deadline, T value) {
+		cancel(id);
+		long expiry = Math.ceilDiv(deadline, tickMillis) * tickMillis;
+		Entry<T> entry = new Entry<>(id, expiry, value);
+		if (!add(entry)) {
+			return false;
+		}
+		entries.put(id, entry);
+		return true;
+	}
+
+	public boolean cancel(String id) {
+		Entry<T> entry = entries.remove(id);
+		if (entry == null) {
+			return false;
+		}
+		entry.unlink();
+		return true;
+	}
+
+	public boolean contains(String id) {
+		return entries.containsKey(id);
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	// Move the clock forward to now, passing every entry whose deadline is reached to
+	// the consumer in deadline order (ticks) and schedule order (within a tick)
+	public void advanceTo(long now, Consumer<T> expired) {
+		while (currentTime + tickMillis <= now) {
+			long time = currentTime + tickMillis;
+			moveClock(time);
+			flush(time, this, expired);
+		}
+	}
+
+	// Every level whose tick boundary is crossed moves first, so that entries moved
+	// down below are placed relative to the new time
+	private void moveClock(long time) {
+		currentTime = time;
+		if (overflow != null && time % overflow.tickMillis == 0) {
+			overflow.moveClock(time);
+		}
+	}
+
+	// Empty the slot starting at time, coarsest level first, re-adding its entries
+	// from the lowest level; those that no longer fit anywhere have expired
+	private void flush(long time, TimingWheel<T> root, Consumer<T> expired) {
+		if (overflow != null && time % overflow.tickMillis == 0) {
+			overflow.flush(time, root, expired);
+		}
+		Entry<T> sentinel = slots[slot(time)];
+		while (sentinel.next != sentinel) {
+			Entry<T> entry = sentinel.next;
+			entry.unlink();
+			if (!root.add(entry)) {
+				entries.remove(entry.id);
+				expired.accept(entry.value);
+			}
+		}
+	}
+
+	private boolean add(Entry<T> entry) {
+		if (entry.expiry < currentTime + tickMillis) {
+			return false;
+		}
+		if (entry.expiry < currentTime + interval) {
+			Entry<T> sentinel = slots[slot(entry.expiry)];
+			entry.previous = sentinel.previous;
+			entry.next = sentinel;
+			sentinel.previous.next = entry;
+			sentinel.previous = entry;
+			return true;
+		}
+		if (overflow == null) {
+			overflow = new TimingWheel<>(interval, wheelSize, currentTime, entries);
+		}
+		return overflow.add(entry);
+	}
+
+	private int slot(long time) {
+		return (int) Math.floorMod(time / tickMillis, (long) wheelSize);
+	}
+}
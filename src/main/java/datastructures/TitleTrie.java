@@ -0,0 +1,232 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import library.models.Book;
+
+public class TitleTrie {
+	// Highest rated first, ties broken by title so results are stable
+	private static final Comparator<Book> BY_RATING = Comparator.comparingDouble(Book::getAverageRating).reversed()
+			.thenComparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER);
+	private static final Book[] EMPTY = new Book[0];
+
+	private final int topK;
+	private final TrieNode root;
+	private final ReadWriteLock lock;
+	private int size;
+
+	// Node class for the compressed (radix) trie
+	private static class TrieNode {
+		private String label; // Characters on the edge coming from the parent
+		private final Map<Character, TrieNode> children;
+		private final List<Book> books; // Books whose normalized title ends here
+		private Book[] top; // Best topK books in this subtree, never mutated in place
+
+		TrieNode(String label) {
+			this.label = label;
+			this.children = new HashMap<>(4);
+			this.books = new ArrayList<>(1);
+			this.top = EMPTY;
+		}
+	}
+
+	public TitleTrie(int topK) {
+		if (topK <= 0) {
+			throw new IllegalArgumentException("Illegal top k: " + topK);
+		}
+		this.topK = topK;
+		this.root = new TrieNode("");
+		this.lock = new ReentrantReadWriteLock();
+		this.size = 0;
+	}
+
+	// Titles are matched lower-cased with collapsed whitespace
+	public static String normalize(String title) {
+		if (title == null) {
+			return "";
+		}
+		return title.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+	}
+
+	// Add a book under its normalized title
+	public void insert(Book book) {
+		String key = normalize(book.getTitle());
+
+		lock.writeLock().lock();
+		try {
+			List<TrieNode> path = new ArrayList<>();
+			TrieNode node = root;
+			path.add(node);
+
+			int i = 0;
+			while (i < key.length()) {
+				TrieNode child = node.children.get(key.charAt(i));
+				if (child == null) {
+					// No edge shares the next character, hang the rest of the key here
+					child = new TrieNode(key.substring(i));
+					node.children.put(key.charAt(i), child);
+					node = child;
+					path.add(node);
+					break;
+				}
+
+				int common = commonPrefix(child.label, key, i);
+				if (common < child.label.length()) {
+					// Split the edge so the shared part gets its own node
+					TrieNode middle = new TrieNode(child.label.substring(0, common));
+					child.label = child.label.substring(common);
+					middle.children.put(child.label.charAt(0), child);
+					middle.top = child.top;
+					node.children.put(key.charAt(i), middle);
+					child = middle;
+				}
+
+				node = child;
+				path.add(node);
+				i += common;
+			}
+
+			node.books.add(book);
+			size++;
+			refreshTop(path);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Remove a book, looked up by its title and matched by id
+	public boolean remove(Book book) {
+		String key = normalize(book.getTitle());
+
+		lock.writeLock().lock();
+		try {
+			List<TrieNode> path = new ArrayList<>();
+			TrieNode node = root;
+			path.add(node);
+
+			int i = 0;
+			while (i < key.length()) {
+				TrieNode child = node.children.get(key.charAt(i));
+				if (child == null || !key.startsWith(child.label, i)) {
+					return false;
+				}
+				node = child;
+				path.add(node);
+				i += child.label.length();
+			}
+
+			if (!node.books.removeIf(indexed -> sameBook(indexed, book))) {
+				return false;
+			}
+			size--;
+
+			// Drop empty nodes and merge pass-through nodes back into their child
+			for (int p = path.size() - 1; p > 0; p--) {
+				TrieNode current = path.get(p);
+				TrieNode parent = path.get(p - 1);
+				if (!current.books.isEmpty()) {
+					continue;
+				}
+				if (current.children.isEmpty()) {
+					parent.children.remove(current.label.charAt(0));
+					path.remove(p);
+				} else if (current.children.size() == 1) {
+					TrieNode only = current.children.values().iterator().next();
+					only.label = current.label + only.label;
+					parent.children.put(only.label.charAt(0), only);
+					path.set(p, only);
+				}
+			}
+
+			refreshTop(path);
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Best rated books whose title starts with the prefix, at most min(limit, topK)
+	public List<Book> complete(String prefix, int limit) {
+		String key = normalize(prefix);
+
+		lock.readLock().lock();
+		try {
+			TrieNode node = root;
+			int i = 0;
+			while (i < key.length()) {
+				TrieNode child = node.children.get(key.charAt(i));
+				if (child == null) {
+					return new ArrayList<>();
+				}
+				int common = commonPrefix(child.label, key, i);
+				if (i + common == key.length()) {
+					// The prefix ends on (or inside) this edge
+					node = child;
+					break;
+				}
+				if (common < child.label.length()) {
+					return new ArrayList<>();
+				}
+				node = child;
+				i += common;
+			}
+
+			int count = Math.min(Math.max(limit, 0), node.top.length);
+			return new ArrayList<>(Arrays.asList(node.top).subList(0, count));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Number of books in the trie
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Recompute the cached top books bottom-up along a root-to-node path
+	private void refreshTop(List<TrieNode> path) {
+		for (int p = path.size() - 1; p >= 0; p--) {
+			TrieNode node = path.get(p);
+
+			// The best books of a subtree are always among its own books and the
+			// children's cached bests, so nothing deeper has to be visited
+			List<Book> candidates = new ArrayList<>(node.books);
+			for (TrieNode child : node.children.values()) {
+				candidates.addAll(Arrays.asList(child.top));
+			}
+			candidates.sort(BY_RATING);
+
+			int count = Math.min(topK, candidates.size());
+			node.top = candidates.subList(0, count).toArray(EMPTY);
+		}
+	}
+
+	// Length of the common prefix between the label and key[offset..]
+	private static int commonPrefix(String label, String key, int offset) {
+		int j = 0;
+		while (j < label.length() && offset + j < key.length() && label.charAt(j) == key.charAt(offset + j)) {
+			j++;
+		}
+		return j;
+	}
+
+	private static boolean sameBook(Book indexed, Book book) {
+		if (indexed == book) {
+			return true;
+		}
+		return indexed.getId() != null && indexed.getId().equals(book.getId());
+	}
+}
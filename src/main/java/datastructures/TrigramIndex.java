@@ -0,0 +1,178 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Trigram -> terms index, used to find the terms that contain a substring
+// without comparing the query against every term
+public class TrigramIndex {
+	private static final int GRAM = 3;
+
+	private final Map<String, Set<String>> postings;
+	private final Set<String> terms;
+
+	public TrigramIndex() {
+		this.postings = new ConcurrentHashMap<>();
+		this.terms = ConcurrentHashMap.newKeySet();
+	}
+
+	// Add a term, indexing each of its trigrams
+	public void add(String term) {
+		if (!terms.add(term)) {
+			return;
+		}
+		for (String gram : trigrams(term)) {
+			postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(term);
+		}
+	}
+
+	// Remove a term and drop trigrams nobody uses anymore
+	public void remove(String term) {
+		if (!terms.remove(term)) {
+			return;
+		}
+		for (String gram : trigrams(term)) {
+			postings.computeIfPresent(gram, (key, indexed) -> {
+				indexed.remove(term);
+				return indexed.isEmpty() ? null : indexed;
+			});
+		}
+	}
+
+	// Terms that contain the substring
+	public List<String> containing(String substring) {
+		List<String> result = new ArrayList<>();
+
+		// Too short to have a trigram, fall back to checking every term
+		if (substring.length() < GRAM) {
+			for (String term : terms) {
+				if (term.contains(substring)) {
+					result.add(term);
+				}
+			}
+			return result;
+		}
+
+		// Every trigram of the substring must appear in a matching term
+		List<Set<String>> candidateSets = new ArrayList<>();
+		for (String gram : trigrams(substring)) {
+			Set<String> indexed = postings.get(gram);
+			if (indexed == null) {
+				return result;
+			}
+			candidateSets.add(indexed);
+		}
+		candidateSets.sort(Comparator.comparingInt(Set::size));
+
+		// Walk the smallest set and verify, trigrams alone don't guarantee adjacency
+		Set<String> smallest = candidateSets.get(0);
+		for (String term : smallest) {
+			boolean inAll = true;
+			for (int i = 1; i < candidateSets.size() && inAll; i++) {
+				inAll = candidateSets.get(i).contains(term);
+			}
+			if (inAll && term.contains(substring)) {
+				result.add(term);
+			}
+		}
+		return result;
+	}
+
+	// Terms that start with something within maxDistance edits of the query, mapped
+	// to that distance. Candidates come from trigram counts: with k edits at most 3k
+	// of the query's distinct trigrams can be lost, so a term sharing fewer cannot
+	// match and is never compared character by character.
+	public Map<String, Integer> fuzzyPrefixMatches(String query, int maxDistance) {
+		Map<String, Integer> result = new HashMap<>();
+		Set<String> queryGrams = trigrams(query);
+		int required = queryGrams.size() - GRAM * maxDistance;
+
+		Iterable<String> candidates;
+		if (required <= 0) {
+			// Query too short for the filter to prune anything
+			candidates = terms;
+		} else {
+			Map<String, Integer> shared = new HashMap<>();
+			for (String gram : queryGrams) {
+				Set<String> indexed = postings.get(gram);
+				if (indexed != null) {
+					for (String term : indexed) {
+						shared.merge(term, 1, Integer::sum);
+					}
+				}
+			}
+			List<String> filtered = new ArrayList<>();
+			for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+				if (entry.getValue() >= required) {
+					filtered.add(entry.getKey());
+				}
+			}
+			candidates = filtered;
+		}
+
+		for (String term : candidates) {
+			if (term.length() < query.length() - maxDistance) {
+				continue;
+			}
+			int distance = boundedPrefixDistance(query, term, maxDistance);
+			if (distance <= maxDistance) {
+				result.put(term, distance);
+			}
+		}
+		return result;
+	}
+
+	// Smallest edit distance between the query and any prefix of the term, or
+	// maxDistance + 1 as soon as it is known to exceed maxDistance
+	public static int boundedPrefixDistance(String query, String term, int maxDistance) {
+		int n = query.length();
+		// column[i] = distance between query[0..i) and the term prefix seen so far
+		int[] column = new int[n + 1];
+		int[] next = new int[n + 1];
+		for (int i = 0; i <= n; i++) {
+			column[i] = i;
+		}
+		int best = column[n];
+
+		for (int j = 1; j <= term.length(); j++) {
+			char c = term.charAt(j - 1);
+			next[0] = j;
+			int columnMin = next[0];
+			for (int i = 1; i <= n; i++) {
+				int substitution = column[i - 1] + (query.charAt(i - 1) == c ? 0 : 1);
+				next[i] = Math.min(substitution, Math.min(column[i] + 1, next[i - 1] + 1));
+				columnMin = Math.min(columnMin, next[i]);
+			}
+			best = Math.min(best, next[n]);
+
+			// Column minimums never decrease, nothing further can get back under the bound
+			if (columnMin > maxDistance) {
+				break;
+			}
+			int[] swap = column;
+			column = next;
+			next = swap;
+		}
+		return best <= maxDistance ? best : maxDistance + 1;
+	}
+
+	// Number of indexed terms
+	public int size() {
+		return terms.size();
+	}
+
+	// Distinct trigrams of a string, in order of appearance
+	public static Set<String> trigrams(String value) {
+		Set<String> grams = new LinkedHashSet<>();
+		for (int i = 0; i + GRAM <= value.length(); i++) {
+			grams.add(value.substring(i, i + GRAM));
+		}
+		return grams;
+	}
+}
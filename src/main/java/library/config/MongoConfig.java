@@ -0,0 +1,44 @@
+package library.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Update;
+
+import library.models.LoanQueue;
+
+@Configuration
+public class MongoConfig {
+	private static final Logger logger = LoggerFactory.getLogger(MongoConfig.class);
+
+	// Loan queues are ring buffers in memory but always stored dense from index 0,
+	// so the stored documents keep the shape of the old ArraycitaList queues
+	@Bean
+	public BeforeConvertCallback<LoanQueue> compactLoanQueue() {
+		return (loanQueue, collection) -> {
+			loanQueue.compact();
+			return loanQueue;
+		};
+	}
+
+	// Queues saved by older versions can end in null slots, which $push with $sort
+	// would move ahead of the real loans; strip them before the server takes requests.
+	// Only queues that still have one are written, once they are all compact this is
+	// a single read.
+	@Bean
+	public SmartInitializingSingleton compactLegacyLoanQueues(MongoTemplate mongoTemplate) {
+		return () -> {
+			long compacted = mongoTemplate.updateMulti(
+					new BasicQuery("{\"queue.elements\": {\"$elemMatch\": {\"$eq\": null}}}"),
+					new Update().pull("queue.elements", null), LoanQueue.class).getModifiedCount();
+			if (compacted > 0) {
+				logger.info("Removed null slots from {} legacy loan queues", compacted);
+			}
+		};
+	}
+}
@@ -1,7 +1,10 @@
 package library.controllers;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,29 +21,68 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import datastructures.ArraycitaList;
+import datastructures.ItemSimilarity.Neighbor;
+import jakarta.servlet.http.HttpServletRequest;
 import datastructures.LinkedListSimple;
 import library.models.Book;
+import library.services.BookImportService;
 import library.services.BookService;
+import library.services.RatingAggregator;
+import library.services.RecommendationService;
 
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
 	private final BookService bookCatalogService;
+	private final BookImportService bookImportService;
+	private final RatingAggregator ratingAggregator;
+	private final RecommendationService recommendationService;
 
 	@Autowired
-	public BookController(BookService bookCatalogService) {
+	public BookController(BookService bookCatalogService, BookImportService bookImportService,
+			RatingAggregator ratingAggregator, RecommendationService recommendationService) {
 		this.bookCatalogService = bookCatalogService;
+		this.bookImportService = bookImportService;
+		this.ratingAggregator = ratingAggregator;
+		this.recommendationService = recommendationService;
 	}
 
+	// Catalog page by page, e.g. ?sortBy=year&after=<id of the last book>&limit=50
+	// (with the default title order, after is the last title, or use ?page=N)
 	@GetMapping("/")
-	public ResponseEntity<List<Book>> getAllBooks(@RequestParam(required = false) String sortBy) {
-		LinkedListSimple<Book> books = bookCatalogService.getAllBooksSorted();
-		return ResponseEntity.ok(books.toList());
+	public ResponseEntity<List<Book>> getAllBooks(@RequestParam(required = false) String sortBy,
+			@RequestParam(required = false) String after, @RequestParam(required = false) Integer page,
+			@RequestParam(defaultValue = "50") int limit) {
+		if (page != null) {
+			// Offsets are only cheap in the title tree
+			if (sortBy != null && !sortBy.equals("title")) {
+				return ResponseEntity.badRequest().build();
+			}
+			return ResponseEntity.ok(bookCatalogService.listBooksPage(page, limit));
+		}
+		try {
+			return ResponseEntity.ok(bookCatalogService.listBooks(sortBy, after, limit));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
 	}
 
+	// Best Bayesian scores first, optionally within one category. Served from the score
+	// views; changes still waiting in the rating aggregator show up after its next flush.
+	@GetMapping("/top-rated")
+	public ResponseEntity<List<Book>> getTopRated(@RequestParam(required = false) String category,
+			@RequestParam(defaultValue = "10") int limit) {
+		try {
+			return ResponseEntity.ok(bookCatalogService.getTopRated(category, limit));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
+	// Includes rating changes that are not written to MongoDB yet
 	@GetMapping("/{id}")
 	public ResponseEntity<Book> getBookById(@PathVariable String id) {
-		Optional<Book> book = bookCatalogService.findById(id);
+		Optional<Book> book = bookCatalogService.findById(id).map(ratingAggregator::withPending);
 
 		if (book.isEmpty()) {
 			return ResponseEntity.notFound().build();
@@ -48,6 +90,28 @@ public class BookController {
 			return ResponseEntity.ok(book.get());
 	}
 
+	// Readers who borrowed or liked this book also borrowed or liked these, most
+	// similar first; answered from memory, books are resolved through the indexed
+	// books only and never read from MongoDB
+	@GetMapping("/{id}/similar")
+	public ResponseEntity<List<Map<String, Object>>> getSimilarBooks(@PathVariable String id,
+			@RequestParam(defaultValue = "10") int limit) {
+		if (bookCatalogService.findIndexed(id).isEmpty()) {
+			return ResponseEntity.notFound().build();
+		}
+		List<Map<String, Object>> similar = new ArrayList<>();
+		for (Neighbor neighbor : recommendationService.getSimilarBooks(id, limit)) {
+			// Deleted books keep their place until the next rebuild, skip them
+			bookCatalogService.findIndexed(neighbor.bookId()).ifPresent(book -> {
+				Map<String, Object> entry = new LinkedHashMap<>();
+				entry.put("book", book);
+				entry.put("similarity", neighbor.similarity());
+				similar.add(entry);
+			});
+		}
+		return ResponseEntity.ok(similar);
+	}
+
 	@GetMapping("/title/{title}")
 	public ResponseEntity<Book> getBookByTitle(@PathVariable String title) {
 		Book book = bookCatalogService.findByTitle(title);
@@ -59,13 +123,24 @@ public class BookController {
 
 	@GetMapping("/search")
 	public ResponseEntity<List<Book>> searchBooks(@RequestParam(required = false) String title,
-			@RequestParam(required = false) String author, @RequestParam(required = false) String category) {
+			@RequestParam(required = false) String author, @RequestParam(required = false) String category,
+			@RequestParam(required = false) String q, @RequestParam(defaultValue = "0") int page,
+			@RequestParam(defaultValue = "0") int fuzzy, @RequestParam(defaultValue = "50") int limit) {
 
 		List<Book> results = new ArrayList<>();
 
-		if (title != null) {
-			// Use BST for efficient title search
-			ArraycitaList<Book> booksFound = bookCatalogService.findByTitlePrefix(title);
+		if (q != null) {
+			// Ranked full-text search over title, author and category
+			results = bookCatalogService.searchRanked(q, page, limit);
+		} else if (title != null && fuzzy > 0) {
+			// Typo tolerant title search, fuzzy is the number of edits allowed
+			ArraycitaList<Book> booksFound = bookCatalogService.findByTitleFuzzy(title, fuzzy, limit);
+			for (Book book : booksFound) {
+				results.add(book);
+			}
+		} else if (title != null) {
+			// Use BST for efficient title search, only the first page is collected
+			ArraycitaList<Book> booksFound = bookCatalogService.findByTitlePrefix(title, limit);
 			for (Book book : booksFound) {
 				results.add(book);
 			}
@@ -90,12 +165,62 @@ public class BookController {
 		return ResponseEntity.ok(results);
 	}
 
+	// Combined filters, e.g. ?category=Fantasy&status=AVAILABLE&fromYear=1990&toYear=2000&minRating=4
+	@GetMapping("/filter")
+	public ResponseEntity<List<Book>> filterBooks(@RequestParam(required = false) String category,
+			@RequestParam(required = false) String status, @RequestParam(required = false) Integer fromYear,
+			@RequestParam(required = false) Integer toYear, @RequestParam(required = false) Double minRating,
+			@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "50") int limit) {
+		return ResponseEntity.ok(
+				bookCatalogService.filterBooks(category, status, fromYear, toYear, minRating, page, limit));
+	}
+
+	// Title autocomplete, best rated matches first
+	@GetMapping("/autocomplete")
+	public ResponseEntity<List<Book>> autocomplete(@RequestParam String prefix,
+			@RequestParam(defaultValue = "10") int limit) {
+		return ResponseEntity.ok(bookCatalogService.autocomplete(prefix, limit));
+	}
+
+	// Alphabetical position of a title, e.g. {"title": "Dune", "rank": 1234}
+	@GetMapping("/rank")
+	public ResponseEntity<Map<String, Object>> getTitleRank(@RequestParam String title) {
+		int rank = bookCatalogService.getTitleRank(title);
+		if (rank < 0) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(Map.of("title", title, "rank", rank));
+	}
+
+	// Number of books with from <= title < to, either bound can be left out
+	@GetMapping("/count")
+	public ResponseEntity<Map<String, Object>> countByTitleRange(@RequestParam(required = false) String from,
+			@RequestParam(required = false) String to) {
+		return ResponseEntity.ok(Map.of("count", bookCatalogService.countByTitleRange(from, to)));
+	}
+
+	// Index sizes and startup load metrics
+	@GetMapping("/index/stats")
+	public ResponseEntity<Map<String, Object>> getIndexStats() {
+		return ResponseEntity.ok(bookCatalogService.getIndexStats());
+	}
+
 	@PostMapping("/")
 	public ResponseEntity<Book> createBook(@RequestBody Book book) {
 		Book newBook = bookCatalogService.addBook(book);
 		return ResponseEntity.status(HttpStatus.CREATED).body(newBook);
 	}
 
+	// Bulk import of a publisher feed, read as it arrives: NDJSON by default, CSV when
+	// sent as text/csv. Responds with per-batch progress and throughput.
+	@PostMapping("/import")
+	public ResponseEntity<Map<String, Object>> importBooks(HttpServletRequest request,
+			@RequestParam(defaultValue = "" + BookImportService.DEFAULT_BATCH_SIZE) int batchSize) throws IOException {
+		boolean csv = request.getContentType() != null && request.getContentType().startsWith("text/csv");
+		Map<String, Object> report = bookImportService.importBooks(request.getInputStream(), csv, batchSize);
+		return ResponseEntity.status(HttpStatus.CREATED).body(report);
+	}
+
 	@PutMapping("/{id}")
 	public ResponseEntity<Book> updateBook(@PathVariable String id, @RequestBody Book book) {
 		Book updatedBook = bookCatalogService.updateBook(id, book);
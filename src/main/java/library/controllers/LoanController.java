@@ -1,9 +1,13 @@
 package library.controllers;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -13,6 +17,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import library.models.Loan;
@@ -29,14 +34,17 @@ public class LoanController {
 		this.loanService = loanService;
 	}
 
+	// Checkouts and returns run asynchronously in the book's mailbox, the request
+	// thread is released while they wait
 	@PostMapping("/")
-	public ResponseEntity<Loan> createLoan(@RequestBody Loan loan) {
-		Loan createdLoan = loanService.createLoan(loan);
-		if (createdLoan != null) {
-			return new ResponseEntity<>(createdLoan, HttpStatus.CREATED);
-		} else {
-			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-		}
+	public CompletableFuture<ResponseEntity<Loan>> createLoan(@RequestBody Loan loan) {
+		return loanService.createLoanAsync(loan).thenApply(createdLoan -> {
+			if (createdLoan != null) {
+				return new ResponseEntity<>(createdLoan, HttpStatus.CREATED);
+			} else {
+				return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			}
+		});
 	}
 
 	@GetMapping("/")
@@ -45,6 +53,12 @@ public class LoanController {
 		return new ResponseEntity<>(loans, HttpStatus.OK);
 	}
 
+	// ACTIVE loans past their return date, longest overdue first
+	@GetMapping("/overdue")
+	public ResponseEntity<List<Loan>> getOverdueLoans() {
+		return new ResponseEntity<>(loanService.getOverdueLoans(), HttpStatus.OK);
+	}
+
 	@GetMapping("/{id}")
 	public ResponseEntity<Loan> getLoanById(@PathVariable String id) {
 		Optional<Loan> loan = loanService.getLoanById(id);
@@ -53,10 +67,20 @@ public class LoanController {
 	}
 
 
+	// Archived loans are only read with includeArchived=true, one archive page at a time
 	@GetMapping("/user/{userId}")
-	public ResponseEntity<List<Loan>> getLoansByUserId(@PathVariable String userId) {
-		List<Loan> loans = loanService.getLoansByUserId(userId);
-		return new ResponseEntity<>(loans, HttpStatus.OK);
+	public ResponseEntity<List<Loan>> getLoansByUserId(@PathVariable String userId,
+			@RequestParam(defaultValue = "false") boolean includeArchived,
+			@RequestParam(defaultValue = "0") int archivePage,
+			@RequestParam(defaultValue = "50") int archiveSize) {
+		if (!includeArchived) {
+			return new ResponseEntity<>(loanService.getLoansByUserId(userId), HttpStatus.OK);
+		}
+		try {
+			return new ResponseEntity<>(loanService.getLoansByUserId(userId, archivePage, archiveSize), HttpStatus.OK);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
 	}
 
 	// Get active loans by user ID
@@ -84,14 +108,55 @@ public class LoanController {
 		}
 	}
 
-	@PutMapping("/{id}/return")
-	public ResponseEntity<Loan> returnBook(@PathVariable String id) {
-		Loan returnedLoan = loanService.returnBook(id);
-		if (returnedLoan != null) {
-			return new ResponseEntity<>(returnedLoan, HttpStatus.OK);
-		} else {
+	// Where the reader stands in the book's queue (1 = next in line)
+	@GetMapping("/queue/{bookId}/position/{userId}")
+	public ResponseEntity<Map<String, Object>> getQueuePosition(@PathVariable String bookId,
+			@PathVariable String userId) {
+		int position = loanService.getQueuePosition(bookId, userId);
+		if (position < 0) {
 			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 		}
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("bookId", bookId);
+		response.put("userId", userId);
+		response.put("position", position);
+		response.put("queueLength", loanService.getQueueLength(bookId));
+		return new ResponseEntity<>(response, HttpStatus.OK);
+	}
+
+	// Cancel a WAITING loan, 404 if it is not waiting (anymore)
+	@DeleteMapping("/{id}/hold")
+	public CompletableFuture<ResponseEntity<Void>> cancelHold(@PathVariable String id) {
+		return loanService.cancelHoldAsync(id).thenApply(cancelled -> cancelled
+				? new ResponseEntity<Void>(HttpStatus.NO_CONTENT)
+				: new ResponseEntity<Void>(HttpStatus.NOT_FOUND));
+	}
+
+	// Set a WAITING loan's priority, e.g. 2 for a course reserve. Only books with the
+	// PRIORITY waitlist policy serve holds by priority.
+	@PutMapping("/{id}/hold/priority/{priority}")
+	public CompletableFuture<ResponseEntity<Loan>> setHoldPriority(@PathVariable String id,
+			@PathVariable int priority) {
+		if (priority < 0) {
+			return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+		}
+		return loanService.setHoldPriorityAsync(id, priority).thenApply(loan -> loan != null
+				? new ResponseEntity<>(loan, HttpStatus.OK)
+				: new ResponseEntity<Loan>(HttpStatus.NOT_FOUND));
+	}
+
+	// The X-Db-Calls header reports how many MongoDB calls the return took
+	@PutMapping("/{id}/return")
+	public CompletableFuture<ResponseEntity<Loan>> returnBook(@PathVariable String id) {
+		return loanService.processReturnAsync(id).thenApply(result -> {
+			HttpHeaders headers = new HttpHeaders();
+			headers.set("X-Db-Calls", String.valueOf(result.dbCalls()));
+			if (result.loan() != null) {
+				return new ResponseEntity<>(result.loan(), headers, HttpStatus.OK);
+			} else {
+				return new ResponseEntity<>(headers, HttpStatus.NOT_FOUND);
+			}
+		});
 	}
 
 	@DeleteMapping("/{id}")
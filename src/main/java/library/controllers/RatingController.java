@@ -31,8 +31,12 @@ public class RatingController {
 
 	@PostMapping
 	public ResponseEntity<Rating> createRating(@RequestBody Rating rating) {
-		Rating createdRating = ratingService.createRating(rating);
-		return new ResponseEntity<>(createdRating, HttpStatus.CREATED);
+		try {
+			Rating createdRating = ratingService.createRating(rating);
+			return new ResponseEntity<>(createdRating, HttpStatus.CREATED);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
 	}
 
 
@@ -68,8 +72,12 @@ public class RatingController {
 	@PutMapping("/{id}")
 	public ResponseEntity<Rating> updateRating(@PathVariable String id, @RequestBody Rating rating) {
 		rating.setId(id);
-		Rating updatedRating = ratingService.updateRating(rating.getId(), rating.getRating(), rating.getComment());
-		return new ResponseEntity<>(updatedRating, HttpStatus.OK);
+		try {
+			Rating updatedRating = ratingService.updateRating(rating.getId(), rating.getRating(), rating.getComment());
+			return new ResponseEntity<>(updatedRating, HttpStatus.OK);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
 	}
 
 	@DeleteMapping("/{id}")
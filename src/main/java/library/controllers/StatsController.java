@@ -37,10 +37,15 @@ public class StatsController {
                 .body(statsText);
     }
 
-    //Most rated books
+    //Most rated books, ?exact=true recounts the ratings in MongoDB
     @GetMapping("/most-rated-books")
-    public ResponseEntity<String> getMostRatedBooks(@RequestParam(defaultValue = "10") int limit) {
-        String statsText = statsService.formatMostRatedBooksAsText(limit);
+    public ResponseEntity<String> getMostRatedBooks(@RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "false") boolean exact) {
+        // Both the aggregation and the in-memory view need at least one book
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().body("limit must be positive");
+        }
+        String statsText = statsService.formatMostRatedBooksAsText(limit, exact);
         
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.TEXT_PLAIN);
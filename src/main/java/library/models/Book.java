@@ -5,6 +5,12 @@ import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "books")
 public class Book {
+	// Bayesian score prior: every book starts with PRIOR_WEIGHT imaginary votes of
+	// PRIOR_MEAN stars, so a single 5 star vote cannot outrank a well rated classic
+	public static final double PRIOR_MEAN = 3.0;
+	public static final int PRIOR_WEIGHT = 10;
+	public static final int RATING_LEVELS = 5;
+
 	@Id
 	private String id;
 
@@ -14,9 +20,17 @@ public class Book {
 	private String category;
 	private String status;
 	private double averageRating;
+	// Kept incrementally on every rating change, averageRating is ratingSum / ratingCount
+	private long ratingSum;
+	private long ratingCount;
+	// Number of 1 to 5 star ratings, at index stars - 1
+	private long[] ratingHistogram;
+	// Name of a WaitlistPolicy, FIFO when not set
+	private String waitlistPolicy;
 
 	public Book() {
 		this.status = "AVAILABLE";
+		this.ratingHistogram = new long[RATING_LEVELS];
 	}
 
 	public Book(String title, String author, int year, String category) {
@@ -26,6 +40,7 @@ public class Book {
 		this.category = category;
 		this.status = "AVAILABLE";
 		this.averageRating = 0.0;
+		this.ratingHistogram = new long[RATING_LEVELS];
 	}
 
 	public String getId() {
@@ -84,4 +99,41 @@ public class Book {
 		this.averageRating = averageRating;
 	}
 
+	public long getRatingSum() {
+		return ratingSum;
+	}
+
+	public void setRatingSum(long ratingSum) {
+		this.ratingSum = ratingSum;
+	}
+
+	public long getRatingCount() {
+		return ratingCount;
+	}
+
+	public void setRatingCount(long ratingCount) {
+		this.ratingCount = ratingCount;
+	}
+
+	public long[] getRatingHistogram() {
+		return ratingHistogram;
+	}
+
+	public void setRatingHistogram(long[] ratingHistogram) {
+		this.ratingHistogram = ratingHistogram;
+	}
+
+	// Average pulled towards PRIOR_MEAN, the less ratings the more (not stored)
+	public double getBayesianScore() {
+		return (PRIOR_MEAN * PRIOR_WEIGHT + ratingSum) / (PRIOR_WEIGHT + ratingCount);
+	}
+
+	public String getWaitlistPolicy() {
+		return waitlistPolicy;
+	}
+
+	public void setWaitlistPolicy(String waitlistPolicy) {
+		this.waitlistPolicy = waitlistPolicy;
+	}
+
 }
\ No newline at end of file
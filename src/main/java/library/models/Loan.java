@@ -16,6 +16,8 @@ public class Loan {
 	private Date loanDate;
 	private Date returnDate;
 	private LoanStatus status;
+	// Hold priority, 0 for regular holds (see WaitlistPolicy)
+	private int priority;
 
 	public enum LoanStatus {
 		ACTIVE, RETURNED, WAITING
@@ -24,7 +26,7 @@ public class Loan {
 	public Loan() {
 		this.loanDate = new Date();
 		this.status = LoanStatus.ACTIVE;
-		this.returnDate = calculateDefaultReturnDate();
+		this.returnDate = calculateDefaultReturnDate(this.loanDate);
 	}
 
 	public Loan(String bookId, String userId) {
@@ -32,13 +34,13 @@ public class Loan {
 		this.userId = userId;
 		this.loanDate = new Date();
 		this.status = LoanStatus.ACTIVE;
-		this.returnDate = calculateDefaultReturnDate();
+		this.returnDate = calculateDefaultReturnDate(this.loanDate);
 	}
 
 	// Helper method to calculate default return date
-	private Date calculateDefaultReturnDate() {
+	public static Date calculateDefaultReturnDate(Date loanDate) {
 		Calendar calendar = Calendar.getInstance();
-		calendar.setTime(this.loanDate);
+		calendar.setTime(loanDate);
 		calendar.add(Calendar.DAY_OF_YEAR, 14);
 		return calendar.getTime();
 	}
@@ -99,4 +101,12 @@ public class Loan {
 	public void setStatus(LoanStatus status) {
 		this.status = status;
 	}
+
+	public int getPriority() {
+		return priority;
+	}
+
+	public void setPriority(int priority) {
+		this.priority = priority;
+	}
 }
@@ -1,22 +1,28 @@
 package library.models;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import datastructures.ArraycitaList;
+import datastructures.CircularDeque;
 
 @Document(collection = "loan_queues")
 public class LoanQueue {
+	// Waiting loans are served in loan date order, ties in arrival order
+	private static final Comparator<Loan> BY_LOAN_DATE = Comparator.comparing(Loan::getLoanDate,
+			Comparator.nullsLast(Comparator.naturalOrder()));
+
 	@Id
 	private String bookId; 
-	private ArraycitaList<Loan> queue;
+	// Stored as {elements, head, size}; queues saved as an ArraycitaList load with head 0
+	private CircularDeque<Loan> queue;
 
 	public LoanQueue(String bookId) {
 		this.bookId = bookId;
-		this.queue = new ArraycitaList<>();
+		this.queue = new CircularDeque<>();
 	}
 
 	public String getBookId() {
@@ -32,14 +38,15 @@ public class LoanQueue {
 		return queue.toList();
 	}
 
-	// Accept regular List but store as ArraycitaList
+	// Accept regular List but store as CircularDeque
 	public void setQueue(List<Loan> queue) {
-		this.queue = ArraycitaList.fromList(queue);
+		this.queue = CircularDeque.fromList(queue);
 	}
 	
-	// Add a loan to the queue
+	// Add a loan to the queue, keeping it ordered by loan date (O(1) for the usual
+	// case of the newest loan going last)
 	public void addLoan(Loan loan) {
-		this.queue.add(loan);
+		this.queue.addOrdered(loan, BY_LOAN_DATE);
 	}
 	
 	// Remove a loan at specific index
@@ -49,18 +56,12 @@ public class LoanQueue {
 	
 	// Get the first loan in the queue (without removing)
 	public Loan peekFirst() {
-		if (queue.isEmpty()) {
-			return null;
-		}
-		return queue.get(0);
+		return queue.peekFirst();
 	}
 	
 	// Remove and return the first loan in the queue
 	public Loan pollFirst() {
-		if (queue.isEmpty()) {
-			return null;
-		}
-		return queue.remove(0);
+		return queue.pollFirst();
 	}
 	
 	// Get queue size
@@ -82,4 +83,10 @@ public class LoanQueue {
 		queue.clear();
 		return loansToReturn;
 	}
+
+	// Store the loans from index 0 without spare slots, the layout older versions
+	// (and array updates on queue.elements) expect
+	public void compact() {
+		queue.trimToSize();
+	}
 }
@@ -0,0 +1,49 @@
+package library.models;
+
+import java.util.Locale;
+
+// How a book's waitlist is ordered. Every hold gets a sort key and the lowest key is
+// served first.
+public enum WaitlistPolicy {
+	// First come, first served, priorities are ignored
+	FIFO {
+		@Override
+		public long queueKey(Loan loan) {
+			return loanTime(loan);
+		}
+	},
+	// Each priority level counts as AGING_STEP_MILLIS of extra waiting time. A priority
+	// hold jumps ahead of recent holds, but a regular hold that has waited longer than
+	// that still comes first, so nobody waits forever.
+	PRIORITY {
+		@Override
+		public long queueKey(Loan loan) {
+			return loanTime(loan) - loan.getPriority() * AGING_STEP_MILLIS;
+		}
+	};
+
+	public static final int REGULAR_PRIORITY = 0;
+	// Holds placed by ADMIN users
+	public static final int STAFF_PRIORITY = 1;
+	// Set by a librarian for course reserves
+	public static final int COURSE_RESERVE_PRIORITY = 2;
+	public static final long AGING_STEP_MILLIS = 3L * 24 * 60 * 60 * 1000;
+
+	public abstract long queueKey(Loan loan);
+
+	// Unknown or missing names fall back to FIFO
+	public static WaitlistPolicy of(String name) {
+		if (name == null) {
+			return FIFO;
+		}
+		try {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			return FIFO;
+		}
+	}
+
+	private static long loanTime(Loan loan) {
+		return loan.getLoanDate() != null ? loan.getLoanDate().getTime() : 0;
+	}
+}
@@ -2,6 +2,7 @@ package library.repositories;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
@@ -9,7 +10,7 @@ import org.springframework.stereotype.Repository;
 import library.models.Book;
 
 @Repository
-public interface BookRepository extends MongoRepository<Book, String> {
+public interface BookRepository extends MongoRepository<Book, String>, BookRepositoryCustom {
 	List<Book> findByTitleContainingIgnoreCase(String title);
 
 	List<Book> findByAuthorContainingIgnoreCase(String author);
@@ -21,4 +22,7 @@ public interface BookRepository extends MongoRepository<Book, String> {
 	Optional<Book> findById(String id);
 
 	List<Book> findByYearBetween(int startYear, int endYear);
+
+	// Cursor backed, books are read as the stream is consumed
+	Stream<Book> streamAllByOrderByTitleAsc();
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package library.repositories;
+
+import java.util.List;
+import java.util.Map;
+
+import library.models.Book;
+
+// Conditional single round trip updates that derived queries cannot express
+public interface BookRepositoryCustom {
+	// Atomically flip AVAILABLE to BORROWED; returns the updated book, or null if the
+	// book does not exist or is not available
+	Book claimIfAvailable(String bookId);
+
+	// Atomically flip BORROWED back to AVAILABLE; returns the updated book, or null if
+	// the book does not exist or was not borrowed
+	Book releaseIfBorrowed(String bookId);
+
+	// $set only the details a book update supplies (non-null title, author, category
+	// and waitlist policy, a positive year); the status and rating counters are never
+	// written. Returns the updated book, or null if it does not exist.
+	Book updateDetails(String bookId, Book changes);
+
+	// Add a change of the 1 to 5 star counts (index stars - 1) to a book's histogram,
+	// moving ratingSum, ratingCount and averageRating with it in the same update;
+	// returns the updated book, or null if it does not exist or has no counters yet
+	Book addRating(String bookId, long[] histogramDelta);
+
+	// Bulk addRating for many books in one round trip, keyed by book id; returns the
+	// ids that were not updated because they have no counters
+	List<String> addRatings(Map<String, long[]> histogramDeltas);
+
+	// Set a book's rating counters from its ratings with one aggregation; returns the
+	// updated book, or null if it does not exist
+	Book recountRatings(String bookId);
+
+	// Give every book saved before the rating counters existed its counters, from one
+	// aggregation over all ratings; returns the number of books updated
+	int backfillRatingCounters();
+}
@@ -0,0 +1,184 @@
+package library.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import library.models.Book;
+import library.models.BookStatus;
+import library.models.Rating;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+	// Saved before the rating counters (or the histogram) existed
+	private static final Criteria[] WITHOUT_COUNTERS = { Criteria.where("ratingCount").exists(false),
+			Criteria.where("ratingHistogram").exists(false) };
+
+	private final MongoTemplate mongoTemplate;
+
+	@Autowired
+	public BookRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+		this.mongoTemplate = mongoTemplate;
+	}
+
+	@Override
+	public Book claimIfAvailable(String bookId) {
+		return switchStatus(bookId, BookStatus.AVAILABLE, BookStatus.BORROWED);
+	}
+
+	@Override
+	public Book releaseIfBorrowed(String bookId) {
+		return switchStatus(bookId, BookStatus.BORROWED, BookStatus.AVAILABLE);
+	}
+
+	@Override
+	public Book updateDetails(String bookId, Book changes) {
+		Query query = new Query(Criteria.where("_id").is(bookId));
+		Update update = new Update();
+		if (changes.getTitle() != null) {
+			update.set("title", changes.getTitle());
+		}
+		if (changes.getAuthor() != null) {
+			update.set("author", changes.getAuthor());
+		}
+		if (changes.getYear() > 0) {
+			update.set("year", changes.getYear());
+		}
+		if (changes.getCategory() != null) {
+			update.set("category", changes.getCategory());
+		}
+		if (changes.getWaitlistPolicy() != null) {
+			update.set("waitlistPolicy", changes.getWaitlistPolicy());
+		}
+		if (update.getUpdateObject().isEmpty()) {
+			// Nothing to set, an empty $set is rejected
+			return mongoTemplate.findOne(query, Book.class);
+		}
+		return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Book.class);
+	}
+
+	@Override
+	public Book addRating(String bookId, long[] histogramDelta) {
+		return mongoTemplate.findAndModify(withCounters(bookId), ratingUpdate(histogramDelta),
+				FindAndModifyOptions.options().returnNew(true), Book.class);
+	}
+
+	@Override
+	public List<String> addRatings(Map<String, long[]> histogramDeltas) {
+		if (histogramDeltas.isEmpty()) {
+			return List.of();
+		}
+		BulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, Book.class);
+		histogramDeltas.forEach((bookId, delta) -> bulk.updateOne(withCounters(bookId), ratingUpdate(delta)));
+		if (bulk.execute().getMatchedCount() == histogramDeltas.size()) {
+			return List.of();
+		}
+		// Rare: find out which books were skipped
+		Query skipped = new Query(Criteria.where("_id").in(histogramDeltas.keySet()).orOperator(WITHOUT_COUNTERS));
+		skipped.fields().include("_id");
+		return mongoTemplate.find(skipped, Book.class).stream().map(Book::getId).toList();
+	}
+
+	@Override
+	public Book recountRatings(String bookId) {
+		Aggregation totals = Aggregation.newAggregation(Aggregation.match(Criteria.where("bookId").is(bookId)),
+				countsPerStar());
+		Document result = mongoTemplate.aggregate(totals, Rating.class, Document.class).getUniqueMappedResult();
+		Query query = new Query(Criteria.where("_id").is(bookId));
+		return mongoTemplate.findAndModify(query, countersUpdate(result), FindAndModifyOptions.options().returnNew(true),
+				Book.class);
+	}
+
+	@Override
+	public int backfillRatingCounters() {
+		Query withoutCounters = new Query(new Criteria().orOperator(WITHOUT_COUNTERS));
+		if (!mongoTemplate.exists(withoutCounters, Book.class)) {
+			return 0;
+		}
+
+		Aggregation totals = Aggregation.newAggregation(countsPerStar());
+		List<Document> results = mongoTemplate.aggregate(totals, Rating.class, Document.class).getMappedResults();
+		int updated = 0;
+		if (!results.isEmpty()) {
+			BulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, Book.class);
+			for (Document result : results) {
+				bulk.updateOne(new Query(Criteria.where("_id").is(result.get("_id")).orOperator(WITHOUT_COUNTERS)),
+						countersUpdate(result));
+			}
+			updated += bulk.execute().getModifiedCount();
+		}
+		// Books nobody rated yet
+		updated += (int) mongoTemplate.updateMulti(withoutCounters, countersUpdate(null), Book.class).getModifiedCount();
+		return updated;
+	}
+
+	private static Query withCounters(String bookId) {
+		return new Query(Criteria.where("_id").is(bookId).and("ratingCount").exists(true).and("ratingHistogram")
+				.exists(true));
+	}
+
+	// Pipeline update: the second $set sees the counters written by the first one
+	private static AggregationUpdate ratingUpdate(long[] histogramDelta) {
+		long sumDelta = 0;
+		long countDelta = 0;
+		List<Document> histogram = new ArrayList<>();
+		for (int i = 0; i < Book.RATING_LEVELS; i++) {
+			sumDelta += (i + 1) * histogramDelta[i];
+			countDelta += histogramDelta[i];
+			histogram.add(new Document("$add",
+					List.of(new Document("$arrayElemAt", List.of("$ratingHistogram", i)), histogramDelta[i])));
+		}
+		Document counters = new Document("ratingHistogram", histogram)
+				.append("ratingSum", new Document("$add", List.of("$ratingSum", sumDelta)))
+				.append("ratingCount", new Document("$add", List.of("$ratingCount", countDelta)));
+		Document average = new Document("averageRating", new Document("$cond", List.of(
+				new Document("$gt", List.of("$ratingCount", 0)),
+				new Document("$divide", List.of("$ratingSum", "$ratingCount")),
+				0.0)));
+		return AggregationUpdate.from(List.<AggregationOperation>of(
+				context -> new Document("$set", counters),
+				context -> new Document("$set", average)));
+	}
+
+	// {_id: bookId, sum, count, stars1 ... stars5} per book
+	private static GroupOperation countsPerStar() {
+		GroupOperation group = Aggregation.group("bookId").sum("rating").as("sum").count().as("count");
+		for (int stars = 1; stars <= Book.RATING_LEVELS; stars++) {
+			group = group.sum(ConditionalOperators.when(Criteria.where("rating").is(stars)).then(1).otherwise(0))
+					.as("stars" + stars);
+		}
+		return group;
+	}
+
+	// Counters and average from a countsPerStar result, null for no ratings
+	private static Update countersUpdate(Document totals) {
+		long sum = totals != null ? ((Number) totals.get("sum")).longValue() : 0;
+		long count = totals != null ? ((Number) totals.get("count")).longValue() : 0;
+		long[] histogram = new long[Book.RATING_LEVELS];
+		for (int stars = 1; totals != null && stars <= Book.RATING_LEVELS; stars++) {
+			histogram[stars - 1] = ((Number) totals.get("stars" + stars)).longValue();
+		}
+		return new Update().set("ratingSum", sum).set("ratingCount", count).set("ratingHistogram", histogram)
+				.set("averageRating", count > 0 ? (double) sum / count : 0.0);
+	}
+
+	private Book switchStatus(String bookId, BookStatus from, BookStatus to) {
+		Query query = new Query(Criteria.where("_id").is(bookId).and("status").is(from.toString()));
+		Update update = new Update().set("status", to.toString());
+		return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Book.class);
+	}
+}
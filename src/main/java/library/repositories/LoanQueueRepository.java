@@ -6,7 +6,7 @@ import org.springframework.stereotype.Repository;
 import library.models.LoanQueue;
 
 @Repository
-public interface LoanQueueRepository extends MongoRepository<LoanQueue, String> {
+public interface LoanQueueRepository extends MongoRepository<LoanQueue, String>, LoanQueueRepositoryCustom {
 	LoanQueue findByBookId(String bookId);
 
 	void deleteByBookId(String bookId);
@@ -0,0 +1,19 @@
+package library.repositories;
+
+import library.models.Loan;
+
+// Atomic queue operations, so concurrent checkouts and returns never overwrite
+// each other's changes to the same queue document
+public interface LoanQueueRepositoryCustom {
+	// Append a waiting loan in loan date order, creating the queue if needed
+	void appendLoan(String bookId, Loan loan);
+
+	// Remove and return the first waiting loan, or null if nobody is waiting
+	Loan pollFirstLoan(String bookId);
+
+	// Remove a waiting loan wherever it is in the queue, false if it was not queued
+	boolean removeLoan(String bookId, String loanId);
+
+	// Change the priority of a queued loan, false if it is not queued
+	boolean setLoanPriority(String bookId, String loanId, int priority);
+}
@@ -0,0 +1,68 @@
+package library.repositories;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.Update.Position;
+
+import library.models.Loan;
+import library.models.LoanQueue;
+
+// Works on the stored queue layout {elements: [...], head: 0, size}, which saves keep
+// dense from index 0 (see MongoConfig)
+public class LoanQueueRepositoryCustomImpl implements LoanQueueRepositoryCustom {
+	private static final String ELEMENTS = "queue.elements";
+	private static final String SIZE = "queue.size";
+
+	private final MongoTemplate mongoTemplate;
+
+	@Autowired
+	public LoanQueueRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+		this.mongoTemplate = mongoTemplate;
+	}
+
+	@Override
+	public void appendLoan(String bookId, Loan loan) {
+		// Converted up front so the element carries its _class like saved queues do
+		Document loanDocument = new Document();
+		mongoTemplate.getConverter().write(loan, loanDocument);
+
+		Update update = new Update().push(ELEMENTS).sort(Sort.by("loanDate")).each(loanDocument).inc(SIZE, 1);
+		mongoTemplate.upsert(new Query(Criteria.where("_id").is(bookId)), update, LoanQueue.class);
+	}
+
+	@Override
+	public Loan pollFirstLoan(String bookId) {
+		Query query = new Query(Criteria.where("_id").is(bookId).and(SIZE).gt(0));
+		Update update = new Update().pop(ELEMENTS, Position.FIRST).inc(SIZE, -1);
+		// Returns the queue as it was before the pop
+		LoanQueue previous = mongoTemplate.findAndModify(query, update, LoanQueue.class);
+		return previous != null ? previous.peekFirst() : null;
+	}
+
+	@Override
+	public boolean removeLoan(String bookId, String loanId) {
+		Object elementId = elementId(loanId);
+		// Matching the element too keeps the size right if it was already removed
+		Query query = new Query(Criteria.where("_id").is(bookId).and(ELEMENTS + "._id").is(elementId));
+		Update update = new Update().pull(ELEMENTS, new Document("_id", elementId)).inc(SIZE, -1);
+		return mongoTemplate.updateFirst(query, update, LoanQueue.class).getModifiedCount() > 0;
+	}
+
+	@Override
+	public boolean setLoanPriority(String bookId, String loanId, int priority) {
+		Query query = new Query(Criteria.where("_id").is(bookId).and(ELEMENTS + "._id").is(elementId(loanId)));
+		Update update = new Update().set(ELEMENTS + ".$.priority", priority);
+		return mongoTemplate.updateFirst(query, update, LoanQueue.class).getMatchedCount() > 0;
+	}
+
+	// Loan ids are stored as ObjectIds when they look like one, as on save
+	private static Object elementId(String loanId) {
+		return ObjectId.isValid(loanId) ? new ObjectId(loanId) : loanId;
+	}
+}
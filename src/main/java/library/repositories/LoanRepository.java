@@ -8,7 +8,7 @@ import org.springframework.stereotype.Repository;
 import library.models.Loan;
 
 @Repository
-public interface LoanRepository extends MongoRepository<Loan, String> {
+public interface LoanRepository extends MongoRepository<Loan, String>, LoanRepositoryCustom {
 	List<Loan> findByUserId(String userId);
 
 	List<Loan> findByBookId(String bookId);
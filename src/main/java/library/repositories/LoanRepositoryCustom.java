@@ -0,0 +1,22 @@
+package library.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import library.models.Loan;
+
+// Conditional single round trip updates that derived queries cannot express
+public interface LoanRepositoryCustom {
+	// Atomically mark an ACTIVE loan as RETURNED; returns the updated loan, or null if
+	// the loan does not exist or is not active
+	Loan markReturned(String loanId, Date returnDate);
+
+	// Move up to limit RETURNED loans returned before the cutoff, oldest first, to the
+	// loans_archive collection; returns how many were moved
+	int archiveReturnedBefore(Date cutoff, int limit);
+
+	// A page of a user's archived loans, most recently returned first
+	List<Loan> findArchivedByUserId(String userId, int page, int size);
+
+	long countArchivedByUserId(String userId);
+}
@@ -0,0 +1,74 @@
+package library.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import library.models.Loan;
+import library.models.Loan.LoanStatus;
+
+public class LoanRepositoryCustomImpl implements LoanRepositoryCustom {
+	// Append-only history of returned loans, same document shape as loans
+	public static final String ARCHIVE_COLLECTION = "loans_archive";
+	private static final int DUPLICATE_KEY = 11000;
+
+	private final MongoTemplate mongoTemplate;
+
+	@Autowired
+	public LoanRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+		this.mongoTemplate = mongoTemplate;
+	}
+
+	@Override
+	public Loan markReturned(String loanId, Date returnDate) {
+		Query query = new Query(Criteria.where("_id").is(loanId).and("status").is(LoanStatus.ACTIVE));
+		Update update = new Update().set("status", LoanStatus.RETURNED).set("returnDate", returnDate);
+		return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Loan.class);
+	}
+
+	@Override
+	public int archiveReturnedBefore(Date cutoff, int limit) {
+		Query query = new Query(Criteria.where("status").is(LoanStatus.RETURNED).and("returnDate").lt(cutoff))
+				.with(Sort.by("returnDate")).limit(limit);
+		List<Loan> loans = mongoTemplate.find(query, Loan.class);
+		if (loans.isEmpty()) {
+			return 0;
+		}
+
+		// Copy first, delete after: a crash in between leaves loans in both collections,
+		// and the next run skips the ones already archived
+		try {
+			mongoTemplate.bulkOps(BulkMode.UNORDERED, Loan.class, ARCHIVE_COLLECTION).insert(loans).execute();
+		} catch (BulkOperationException e) {
+			if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+				throw e;
+			}
+		}
+		List<String> ids = loans.stream().map(Loan::getId).toList();
+		mongoTemplate.remove(new Query(Criteria.where("_id").in(ids).and("status").is(LoanStatus.RETURNED)), Loan.class);
+		return loans.size();
+	}
+
+	@Override
+	public List<Loan> findArchivedByUserId(String userId, int page, int size) {
+		Query query = new Query(Criteria.where("userId").is(userId))
+				.with(Sort.by(Sort.Direction.DESC, "returnDate"))
+				.skip((long) page * size)
+				.limit(size);
+		return mongoTemplate.find(query, Loan.class, ARCHIVE_COLLECTION);
+	}
+
+	@Override
+	public long countArchivedByUserId(String userId) {
+		return mongoTemplate.count(new Query(Criteria.where("userId").is(userId)), Loan.class, ARCHIVE_COLLECTION);
+	}
+}
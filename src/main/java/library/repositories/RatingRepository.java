@@ -9,7 +9,7 @@ import org.springframework.stereotype.Repository;
 import library.models.Rating;
 
 @Repository
-public interface RatingRepository extends MongoRepository<Rating, String> {
+public interface RatingRepository extends MongoRepository<Rating, String>, RatingRepositoryCustom {
 	List<Rating> findByBookId(String bookId);
 
 	List<Rating> findByUserId(String userId);
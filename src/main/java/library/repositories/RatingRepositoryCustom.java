@@ -0,0 +1,15 @@
+package library.repositories;
+
+import java.util.List;
+
+import library.models.Book;
+
+// Aggregations over the ratings that derived queries cannot express
+public interface RatingRepositoryCustom {
+	record BookRatingCount(Book book, long ratingCount) {
+	}
+
+	// The limit most rated books with their number of ratings, most rated first, in one
+	// aggregation; books deleted since they were rated are left out
+	List<BookRatingCount> findMostRatedBooks(int limit);
+}
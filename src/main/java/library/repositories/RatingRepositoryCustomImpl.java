@@ -0,0 +1,45 @@
+package library.repositories;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import library.models.Book;
+import library.models.Rating;
+
+public class RatingRepositoryCustomImpl implements RatingRepositoryCustom {
+	private final MongoTemplate mongoTemplate;
+
+	@Autowired
+	public RatingRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+		this.mongoTemplate = mongoTemplate;
+	}
+
+	// Counted, sorted and cut down to limit before the $lookup, so only limit books
+	// are joined
+	@Override
+	public List<BookRatingCount> findMostRatedBooks(int limit) {
+		String books = mongoTemplate.getCollectionName(Book.class);
+		Aggregation aggregation = Aggregation.newAggregation(
+				Aggregation.group("bookId").count().as("ratingCount"),
+				Aggregation.sort(Sort.by(Sort.Direction.DESC, "ratingCount").and(Sort.by("_id"))),
+				Aggregation.limit(limit),
+				// Ratings keep the book id as a string, books store it as an ObjectId
+				context -> new Document("$addFields", new Document("bookKey", new Document("$convert",
+						new Document("input", "$_id").append("to", "objectId").append("onError", "$_id")))),
+				Aggregation.lookup(books, "bookKey", "_id", "book"),
+				Aggregation.unwind("book"));
+		List<Document> results = mongoTemplate
+				.aggregate(aggregation, mongoTemplate.getCollectionName(Rating.class), Document.class)
+				.getMappedResults();
+		return results.stream()
+				.map(result -> new BookRatingCount(
+						mongoTemplate.getConverter().read(Book.class, (Document) result.get("book")),
+						((Number) result.get("ratingCount")).longValue()))
+				.toList();
+	}
+}
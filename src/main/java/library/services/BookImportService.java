@@ -0,0 +1,207 @@
+package library.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import library.models.Book;
+import library.models.BookStatus;
+import library.repositories.BookRepository;
+
+// Streams a publisher feed (NDJSON or CSV) into MongoDB in ordered insertMany batches,
+// then hands everything that was written to the in-memory indexes in one go
+@Service
+public class BookImportService {
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	private static final int MAX_BATCH_SIZE = 10_000;
+	// Only the first rejected lines are reported back
+	private static final int MAX_REPORTED_ERRORS = 20;
+	private static final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+
+	private final BookRepository bookRepository;
+	private final BookService bookService;
+	private final ObjectMapper objectMapper;
+
+	@Autowired
+	public BookImportService(BookRepository bookRepository, BookService bookService, ObjectMapper objectMapper) {
+		this.bookRepository = bookRepository;
+		this.bookService = bookService;
+		this.objectMapper = objectMapper;
+	}
+
+	// Import one book per line (NDJSON) or per row after a header (CSV with title,
+	// author, year, category and optionally status). Invalid lines are skipped and reported.
+	public Map<String, Object> importBooks(InputStream input, boolean csv, int batchSize) throws IOException {
+		int effectiveBatchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+		long start = System.nanoTime();
+		List<Book> imported = new ArrayList<>();
+		List<Book> batch = new ArrayList<>(effectiveBatchSize);
+		List<Map<String, Object>> batches = new ArrayList<>();
+		List<String> errors = new ArrayList<>();
+		int rejected = 0;
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		try {
+			String[] header = null;
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.isBlank()) {
+					continue;
+				}
+				if (csv && header == null) {
+					header = parseCsvLine(line);
+					continue;
+				}
+
+				try {
+					Book book = csv ? fromCsv(header, parseCsvLine(line)) : objectMapper.readValue(line, Book.class);
+					validate(book);
+					batch.add(book);
+				} catch (IllegalArgumentException | JsonProcessingException e) {
+					rejected++;
+					if (errors.size() < MAX_REPORTED_ERRORS) {
+						errors.add("Line " + lineNumber + ": " + e.getMessage());
+					}
+				}
+
+				if (batch.size() == effectiveBatchSize) {
+					batches.add(writeBatch(batch, batches.size() + 1, imported));
+					batch = new ArrayList<>(effectiveBatchSize);
+				}
+			}
+			if (!batch.isEmpty()) {
+				batches.add(writeBatch(batch, batches.size() + 1, imported));
+			}
+		} finally {
+			// Whatever reached MongoDB must be searchable, even if a later batch failed
+			if (!imported.isEmpty()) {
+				bookService.indexImportedBooks(imported);
+			}
+		}
+
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("imported", imported.size());
+		report.put("rejected", rejected);
+		report.put("elapsedMillis", elapsedMillis);
+		report.put("booksPerSecond", booksPerSecond(imported.size(), elapsedMillis));
+		report.put("batches", batches);
+		report.put("errors", errors);
+		logger.info("Imported {} books ({} rejected) in {} ms", imported.size(), rejected, elapsedMillis);
+		return report;
+	}
+
+	// One ordered insertMany round trip
+	private Map<String, Object> writeBatch(List<Book> batch, int batchNumber, List<Book> imported) {
+		long start = System.nanoTime();
+		List<Book> saved = bookRepository.insert(batch);
+		imported.addAll(saved);
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+		Map<String, Object> progress = new LinkedHashMap<>();
+		progress.put("batch", batchNumber);
+		progress.put("inserted", saved.size());
+		progress.put("totalInserted", imported.size());
+		progress.put("elapsedMillis", elapsedMillis);
+		progress.put("booksPerSecond", booksPerSecond(saved.size(), elapsedMillis));
+		logger.info("Import batch {}: {} books in {} ms ({} so far)", batchNumber, saved.size(), elapsedMillis,
+				imported.size());
+		return progress;
+	}
+
+	private static long booksPerSecond(int books, long elapsedMillis) {
+		return elapsedMillis == 0 ? books * 1000L : books * 1000L / elapsedMillis;
+	}
+
+	private static void validate(Book book) {
+		if (book == null || book.getTitle() == null || book.getTitle().isBlank()) {
+			throw new IllegalArgumentException("Missing title");
+		}
+		if (book.getStatus() == null) {
+			book.setStatus(BookStatus.AVAILABLE.toString());
+		}
+		// Ids are assigned by MongoDB, and ratings only come from RatingService
+		book.setId(null);
+		book.setRatingSum(0);
+		book.setRatingCount(0);
+		book.setAverageRating(0.0);
+		book.setRatingHistogram(new long[Book.RATING_LEVELS]);
+	}
+
+	private static Book fromCsv(String[] header, String[] values) {
+		Book book = new Book();
+		for (int i = 0; i < header.length && i < values.length; i++) {
+			String value = values[i].trim();
+			if (value.isEmpty()) {
+				continue;
+			}
+			switch (header[i].trim().toLowerCase(Locale.ROOT)) {
+			case "title" -> book.setTitle(value);
+			case "author" -> book.setAuthor(value);
+			case "category" -> book.setCategory(value);
+			case "status" -> book.setStatus(value);
+			case "year" -> {
+				try {
+					book.setYear(Integer.parseInt(value));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid year: " + value);
+				}
+			}
+			default -> {
+				// Unknown columns are ignored
+			}
+			}
+		}
+		return book;
+	}
+
+	// Comma separated fields, double quotes around fields containing commas or quotes
+	// ("" inside a quoted field is a quote). Quoted line breaks are not supported.
+	static String[] parseCsvLine(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("Unterminated quoted field");
+		}
+		fields.add(field.toString());
+		return fields.toArray(new String[0]);
+	}
+}
@@ -1,6 +1,17 @@
 package library.services;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,7 +20,12 @@ import org.springframework.stereotype.Service;
 
 import datastructures.BookBST;
 import datastructures.ArraycitaList;
+import datastructures.FacetIndex;
+import datastructures.FullTextIndex;
+import datastructures.InvertedIndex;
 import datastructures.LinkedListSimple;
+import datastructures.TitleTrie;
+import datastructures.TrigramIndex;
 import jakarta.annotation.PostConstruct;
 import library.exceptions.ResourceNotFoundException;
 import library.models.Book;
@@ -19,55 +35,279 @@ import library.repositories.BookRepository;
 public class BookService {
 	private final BookRepository bookRepository;
 	private final BookBST bookBST;
+	private final TitleTrie titleTrie;
+	// Lower-cased author -> ids, with a trigram index over the distinct authors
+	private final InvertedIndex authorIndex;
+	private final TrigramIndex authorTrigrams;
+	// Normalized title -> ids, with trigrams for typo tolerant lookups
+	private final InvertedIndex titleIndex;
+	private final TrigramIndex titleTrigrams;
+	// Category -> ids (exact match, like the repository query)
+	private final InvertedIndex categoryIndex;
+	// BM25 ranked search over title, author and category
+	private final FullTextIndex fullTextIndex;
+	// Bitmaps per category, status and year for combined filters
+	private final FacetIndex facetIndex;
+	// Books currently held by the in-memory indexes, keyed by id
+	private final Map<String, Book> indexedBooks;
+	// Secondary orderings for the catalog listing (title order is the BST itself),
+	// kept current by the index helpers
+	private final Map<String, NavigableSet<Book>> sortedViews;
+	// Best Bayesian score first, one view per category for getTopRated
+	private final Map<String, NavigableSet<Book>> topRatedByCategory;
+	// findById hits on the indexed books and misses that went to MongoDB
+	private final LongAdder cacheHits;
+	private final LongAdder cacheMisses;
+	// How the last startup load went, reported by getIndexStats
+	private volatile Map<String, Object> startupStats;
+	private static final int AUTOCOMPLETE_TOP_K = 10;
+	// Beyond this almost any short query matches everything
+	private static final int MAX_FUZZY_DISTANCE = 3;
+	private static final Comparator<Book> BY_TITLE_AND_ID = Comparator
+			.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER).thenComparing(Book::getId);
+	private static final Comparator<Book> BY_SCORE = Comparator.comparingDouble(Book::getBayesianScore).reversed()
+			.thenComparing(BY_TITLE_AND_ID);
 	private static final Logger logger = LoggerFactory.getLogger(BookService.class);
 
 	@Autowired
 	public BookService(BookRepository bookRepository) {
 		this.bookRepository = bookRepository;
 		this.bookBST = new BookBST();
-		initializeBSTFromDatabase();
+		this.titleTrie = new TitleTrie(AUTOCOMPLETE_TOP_K);
+		this.authorIndex = new InvertedIndex();
+		this.authorTrigrams = new TrigramIndex();
+		this.titleIndex = new InvertedIndex();
+		this.titleTrigrams = new TrigramIndex();
+		this.categoryIndex = new InvertedIndex();
+		this.fullTextIndex = new FullTextIndex();
+		this.facetIndex = new FacetIndex();
+		this.indexedBooks = new ConcurrentHashMap<>();
+		this.sortedViews = Map.of(
+				"year", new ConcurrentSkipListSet<>(Comparator.comparingInt(Book::getYear).thenComparing(BY_TITLE_AND_ID)),
+				"author", new ConcurrentSkipListSet<>(Comparator.comparing(Book::getAuthor,
+						Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)).thenComparing(BY_TITLE_AND_ID)),
+				"rating", new ConcurrentSkipListSet<>(Comparator.comparingDouble(Book::getAverageRating).reversed()
+						.thenComparing(BY_TITLE_AND_ID)),
+				"score", new ConcurrentSkipListSet<>(BY_SCORE),
+				"mostRated", new ConcurrentSkipListSet<>(Comparator.comparingLong(Book::getRatingCount).reversed()
+						.thenComparing(BY_TITLE_AND_ID)));
+		this.topRatedByCategory = new ConcurrentHashMap<>();
+		this.cacheHits = new LongAdder();
+		this.cacheMisses = new LongAdder();
+		this.startupStats = Map.of();
 	}
 
+	// Streams the collection once, already sorted by title, feeding every index as the
+	// books arrive; the BST is then built balanced in O(n) and published in one step
 	@PostConstruct
 	private void initializeBSTFromDatabase() {
 		logger.info("Loading books from database into BST...");
-		java.util.List<Book> allBooks = bookRepository.findAll();
-		for (Book book : allBooks) {
-			bookBST.insert(book);
+		Runtime runtime = Runtime.getRuntime();
+		long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+		long start = System.nanoTime();
+
+		// Books saved before the rating counters existed get them before being indexed
+		int backfilled = bookRepository.backfillRatingCounters();
+		if (backfilled > 0) {
+			logger.info("Backfilled rating counters of {} books", backfilled);
 		}
-		logger.info("Loaded {} books into BST", allBooks.size());
+
+		java.util.List<Book> books = new ArrayList<>();
+		boolean sortedByDatabase = true;
+		synchronized (this) {
+			try (Stream<Book> stream = bookRepository.streamAllByOrderByTitleAsc()) {
+				java.util.Iterator<Book> iterator = stream.iterator();
+				while (iterator.hasNext()) {
+					Book book = iterator.next();
+					if (!books.isEmpty()
+							&& books.get(books.size() - 1).getTitle().compareToIgnoreCase(book.getTitle()) > 0) {
+						sortedByDatabase = false;
+					}
+					books.add(book);
+					indexedBooks.put(book.getId(), book);
+					indexSecondary(book);
+				}
+			}
+			// MongoDB compares case sensitively, so mixed case titles can come back out of
+			// order; the list is nearly sorted, which is the cheap case for List.sort
+			if (!sortedByDatabase) {
+				books.sort((a, b) -> a.getTitle().compareToIgnoreCase(b.getTitle()));
+			}
+			bookBST.buildFromSorted(books);
+		}
+
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		long heapDelta = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+		Map<String, Object> stats = new java.util.LinkedHashMap<>();
+		stats.put("booksLoaded", books.size());
+		stats.put("loadMillis", elapsedMillis);
+		stats.put("heapDeltaBytes", heapDelta);
+		stats.put("sortedByDatabase", sortedByDatabase);
+		startupStats = java.util.Collections.unmodifiableMap(stats);
+		logger.info("Loaded {} books into BST in {} ms (heap delta {} KB)", books.size(), elapsedMillis,
+				heapDelta / 1024);
 	}
 
 
 	public Book addBook(Book book) {
 		// First save to MongoDB
 		Book savedBook = bookRepository.save(book);
-		// Then add to BST
-		bookBST.insert(savedBook);
+		// Then add to BST and the other in-memory indexes
+		indexBook(savedBook);
 		return savedBook;
 	}
 
+	// Bulk counterpart of addBook for books that are already saved: one pass over the
+	// secondary indexes and a single merge into the BST
+	public synchronized void indexImportedBooks(java.util.List<Book> books) {
+		java.util.List<Book> sorted = new ArrayList<>(books);
+		sorted.sort((a, b) -> a.getTitle().compareToIgnoreCase(b.getTitle()));
+		for (Book book : sorted) {
+			indexedBooks.put(book.getId(), book);
+			indexSecondary(book);
+		}
+		bookBST.mergeSorted(sorted);
+	}
+
 	// Search by title (using BST for efficiency)
 	public Book findByTitle(String title) {
 		return bookBST.search(title);
 	}
 
-	public ArraycitaList<Book> findByTitlePrefix(String prefix) {
-		ArraycitaList<Book> result = new ArraycitaList<>();
-		java.util.List<Book> allBooks = bookBST.getAllBooks();
+	// Prefix search only walks the matching part of the BST, up to limit books
+	public ArraycitaList<Book> findByTitlePrefix(String prefix, int limit) {
+		return ArraycitaList.fromList(bookBST.findByPrefix(prefix, limit));
+	}
+
+	// Titles starting with something within maxDistance edits of the query, closest first
+	public ArraycitaList<Book> findByTitleFuzzy(String title, int maxDistance, int limit) {
+		Map<String, Integer> matches = titleTrigrams.fuzzyPrefixMatches(TitleTrie.normalize(title),
+				Math.min(maxDistance, MAX_FUZZY_DISTANCE));
+		List<String> titles = new ArrayList<>(matches.keySet());
+		titles.sort(Comparator.comparing((String t) -> matches.get(t))
+				.thenComparingInt(String::length).thenComparing(t -> t));
 
-		for (Book book : allBooks) {
-			if (book.getTitle().toLowerCase().startsWith(prefix.toLowerCase())) {
-				result.add(book);
+		java.util.List<Book> books = new ArrayList<>();
+		for (String indexedTitle : titles) {
+			if (books.size() >= limit) {
+				break;
 			}
+			addIndexedBooks(titleIndex.get(indexedTitle), books);
 		}
+		return convertToCustomArrayList(books.size() > limit ? books.subList(0, limit) : books);
+	}
 
-		return result;
+	// Best rated books for a title prefix, answered from the trie's cached top books
+	public List<Book> autocomplete(String prefix, int limit) {
+		return titleTrie.complete(prefix, limit);
+	}
+
+	// Relevance ranked search over title, author and category, one page at a time
+	public List<Book> searchRanked(String query, int page, int size) {
+		return fullTextIndex.search(query, page, size);
+	}
+
+	// Combined category/status/year/rating filter, answered from the facet bitmaps
+	public List<Book> filterBooks(String category, String status, Integer fromYear, Integer toYear,
+			Double minRating, int page, int size) {
+		return facetIndex.query(category, status, fromYear, toYear, minRating, page, size);
+	}
+
+	// One page of the catalog in the given order (title, year, author or best rated),
+	// starting after the cursor: a title for the title order, otherwise the id of the
+	// last book of the previous page
+	public List<Book> listBooks(String sortBy, String after, int limit) {
+		java.util.List<Book> page = new ArrayList<>();
+		if (sortBy == null || sortBy.equals("title")) {
+			Iterator<Book> iterator = bookBST.iteratorFrom(after, false);
+			while (page.size() < limit && iterator.hasNext()) {
+				page.add(iterator.next());
+			}
+			return page;
+		}
+
+		NavigableSet<Book> view = sortedViews.get(sortBy);
+		if (view == null) {
+			throw new IllegalArgumentException("Unsupported sort order: " + sortBy);
+		}
+		Iterable<Book> books = view;
+		if (after != null) {
+			Book cursor = indexedBooks.get(after);
+			if (cursor == null) {
+				throw new IllegalArgumentException("Unknown cursor: " + after);
+			}
+			books = view.tailSet(cursor, false);
+		}
+		for (Book book : books) {
+			if (page.size() >= limit) {
+				break;
+			}
+			page.add(book);
+		}
+		return page;
+	}
+
+	// Best rated books by Bayesian score, within a category or over the whole catalog;
+	// read off the front of a score-ordered view, so O(limit) whatever the catalog size
+	public List<Book> getTopRated(String category, int limit) {
+		if (limit <= 0) {
+			throw new IllegalArgumentException("Limit must be positive");
+		}
+		NavigableSet<Book> view = category == null ? sortedViews.get("score") : topRatedByCategory.get(category);
+		java.util.List<Book> books = new ArrayList<>();
+		if (view == null) {
+			return books;
+		}
+		for (Book book : view) {
+			if (books.size() >= limit) {
+				break;
+			}
+			books.add(book);
+		}
+		return books;
+	}
+
+	// Books with the most ratings, most rated first, leaving out books nobody rated;
+	// the counters move with every flushed rating change, so this is O(limit)
+	public List<Book> getMostRated(int limit) {
+		java.util.List<Book> books = new ArrayList<>();
+		for (Book book : sortedViews.get("mostRated")) {
+			if (books.size() >= limit || book.getRatingCount() == 0) {
+				break;
+			}
+			books.add(book);
+		}
+		return books;
+	}
+
+	// Offset paging over the title order (?page=N), positioned in O(log n) by subtree sizes
+	public List<Book> listBooksPage(int page, int limit) {
+		java.util.List<Book> books = new ArrayList<>();
+		if (page < 0 || limit <= 0) {
+			return books;
+		}
+		Iterator<Book> iterator = bookBST.iteratorAt((int) Math.min(Integer.MAX_VALUE, (long) page * limit));
+		while (books.size() < limit && iterator.hasNext()) {
+			books.add(iterator.next());
+		}
+		return books;
+	}
+
+	// 1-based alphabetical position of a title, or -1 when no book has it
+	public int getTitleRank(String title) {
+		if (bookBST.search(title) == null) {
+			return -1;
+		}
+		return bookBST.rank(title) + 1;
+	}
+
+	// Books with from <= title < to (ignoring case), counted without visiting them
+	public int countByTitleRange(String fromTitle, String toTitle) {
+		return bookBST.countInRange(fromTitle, toTitle);
 	}
 
-	
 	public LinkedListSimple<Book> getAllBooksSorted() {
-		java.util.List<Book> books = bookRepository.findAll();
+		java.util.List<Book> books = bookBST.getAllBooks();
 		LinkedListSimple<Book> linkedBooks = new LinkedListSimple<>();
 		
 		for (Book book : books) {
@@ -78,68 +318,260 @@ public class BookService {
 	}
 
 
+	// Only the supplied details are set in MongoDB. The status belongs to checkouts and
+	// returns and the rating counters to the rating updates, both change with their own
+	// conditional updates that a whole-document save would undo.
 	public Book updateBook(String id, Book updatedBook) {
-		// First find the book in MongoDB
-		Book existingBook = bookRepository.findById(id)
-				.orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id));
-
-		// Update fields only if they are not null
-		if (updatedBook.getTitle() != null) {
-			existingBook.setTitle(updatedBook.getTitle());
-		}
-		if (updatedBook.getAuthor() != null) {
-			existingBook.setAuthor(updatedBook.getAuthor());
+		Book savedBook = bookRepository.updateDetails(id, updatedBook);
+		if (savedBook == null) {
+			throw new ResourceNotFoundException("Book not found with id: " + id);
 		}
-		if (updatedBook.getYear() > 0) {
-			existingBook.setYear(updatedBook.getYear());
-		}
-		if (updatedBook.getCategory() != null) {
-			existingBook.setCategory(updatedBook.getCategory());
-		}
-		if (updatedBook.getStatus() != null) {
-			existingBook.setStatus(updatedBook.getStatus());
-		}
-
-		// Save to MongoDB
-		Book savedBook = bookRepository.save(existingBook);
 
-		// Update BST 
-		bookBST.delete(existingBook.getTitle());
-		bookBST.insert(savedBook);
+		// Update BST in one step so concurrent readers never miss the book
+		refreshBook(savedBook);
 
 		return savedBook;
 	}
 
 	// Delete a book
 	public void deleteBook(String id) {
-		Book book = bookRepository.findById(id)
-				.orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id));
+		if (findById(id).isEmpty()) {
+			throw new ResourceNotFoundException("Book not found with id: " + id);
+		}
 
 		// Delete from MongoDB
 		bookRepository.deleteById(id);
 
-		// Delete from BST
-		bookBST.delete(book.getTitle());
+		// Delete from BST and the other in-memory indexes
+		unindexBook(id);
 	}
 
+	// Called after another service saved a book directly (status changes), so the
+	// in-memory indexes pick up the persisted version. The indexed version is read
+	// under the lock, two refreshes must not both unlink the same one. A book that is
+	// not indexed (deleted meanwhile) stays out, a later findById reads it through.
+	public synchronized void refreshBook(Book savedBook) {
+		Book previousBook = indexedBooks.get(savedBook.getId());
+		if (previousBook != null) {
+			reindexBook(previousBook, savedBook);
+		}
+	}
+
+	// Like refreshBook for a rating update, but only the rating fields are taken over:
+	// the rest of the document may be older than a status change indexed since it was
+	// read
+	public synchronized void refreshRatings(Book savedBook) {
+		Book previousBook = indexedBooks.get(savedBook.getId());
+		if (previousBook == null) {
+			return;
+		}
+		Book book = copyOf(previousBook);
+		book.setRatingSum(savedBook.getRatingSum());
+		book.setRatingCount(savedBook.getRatingCount());
+		book.setRatingHistogram(savedBook.getRatingHistogram());
+		book.setAverageRating(savedBook.getAverageRating());
+		reindexBook(previousBook, book);
+	}
 
+
+	// Same matches as findByAuthorContainingIgnoreCase, served from the author index
 	public ArraycitaList<Book> findByAuthor(String author) {
-		// Since we're searching by author (not optimized in BST),
-		// we'll use MongoDB directly and convert to our custom data structure
-		java.util.List<Book> books = bookRepository.findByAuthorContainingIgnoreCase(author);
+		java.util.List<Book> books = new ArrayList<>();
+		for (String indexedAuthor : authorTrigrams.containing(author.toLowerCase(Locale.ROOT))) {
+			addIndexedBooks(authorIndex.get(indexedAuthor), books);
+		}
+		books.sort((a, b) -> a.getTitle().compareToIgnoreCase(b.getTitle()));
 		return convertToCustomArrayList(books);
 	}
 
+	// Same matches as findByCategory, served from the category index
 	public ArraycitaList<Book> findByCategory(String category) {
-		// For the bear requirement of use a custom Data Structure
-		java.util.List<Book> books = bookRepository.findByCategory(category);
+		java.util.List<Book> books = new ArrayList<>();
+		addIndexedBooks(categoryIndex.get(category), books);
+		books.sort((a, b) -> a.getTitle().compareToIgnoreCase(b.getTitle()));
 		return convertToCustomArrayList(books);
 	}
 
+	// Served from the indexed books, which every write path keeps current; a miss reads
+	// through to MongoDB and indexes the result. Callers get a copy they are free to modify.
 	public Optional<Book> findById(String id) {
-		return bookRepository.findById(id);
+		Book book = indexedBooks.get(id);
+		if (book != null) {
+			cacheHits.increment();
+			return Optional.of(copyOf(book));
+		}
+		cacheMisses.increment();
+		Optional<Book> loaded = bookRepository.findById(id);
+		loaded.ifPresent(this::indexIfAbsent);
+		return loaded.map(this::copyOf);
+	}
+
+	// The indexed copy only, empty on a cache miss instead of reading through
+	public Optional<Book> findIndexed(String id) {
+		Book book = indexedBooks.get(id);
+		return book != null ? Optional.of(copyOf(book)) : Optional.empty();
+	}
+
+	// Sizes of the in-memory indexes plus the metrics of the startup load
+	public Map<String, Object> getIndexStats() {
+		Map<String, Object> stats = new java.util.LinkedHashMap<>();
+		stats.put("indexedBooks", indexedBooks.size());
+		stats.put("titleTreeBooks", bookBST.size());
+		stats.put("titleTrieEntries", titleTrie.size());
+		stats.put("fullTextDocuments", fullTextIndex.size());
+		stats.put("facetBooks", facetIndex.size());
+		long hits = cacheHits.sum();
+		long misses = cacheMisses.sum();
+		Map<String, Object> cache = new java.util.LinkedHashMap<>();
+		cache.put("hits", hits);
+		cache.put("misses", misses);
+		cache.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+		stats.put("idCache", cache);
+		stats.put("startup", startupStats);
+		return stats;
 	}
 	
+	// Indexed books are never mutated in place, the indexes need the old values to unlink them
+	private synchronized void indexBook(Book book) {
+		indexedBooks.put(book.getId(), book);
+		bookBST.insert(book);
+		indexSecondary(book);
+	}
+
+	// Everything but the BST, which the startup load builds separately
+	private void indexSecondary(Book book) {
+		titleTrie.insert(book);
+		fullTextIndex.add(book);
+		facetIndex.add(book);
+		indexAttributes(book);
+		for (NavigableSet<Book> view : sortedViews.values()) {
+			view.add(book);
+		}
+		addToCategoryView(book);
+	}
+
+	// A read-through load must not replace a newer version indexed in the meantime
+	private synchronized void indexIfAbsent(Book book) {
+		if (!indexedBooks.containsKey(book.getId())) {
+			indexBook(book);
+		}
+	}
+
+	// The indexed version is looked up under the lock, a refresh may have replaced it
+	private synchronized void unindexBook(String id) {
+		Book book = indexedBooks.remove(id);
+		if (book == null) {
+			return;
+		}
+		bookBST.delete(book.getTitle());
+		titleTrie.remove(book);
+		fullTextIndex.remove(book.getId());
+		facetIndex.remove(book.getId());
+		unindexAttributes(book);
+		for (NavigableSet<Book> view : sortedViews.values()) {
+			view.remove(book);
+		}
+		removeFromCategoryView(book);
+	}
+
+	private synchronized void reindexBook(Book previousBook, Book book) {
+		indexedBooks.put(book.getId(), book);
+		bookBST.replace(previousBook.getTitle(), book);
+		titleTrie.remove(previousBook);
+		titleTrie.insert(book);
+		fullTextIndex.replace(previousBook, book);
+		facetIndex.add(book);
+		unindexAttributes(previousBook);
+		indexAttributes(book);
+		for (NavigableSet<Book> view : sortedViews.values()) {
+			view.remove(previousBook);
+			view.add(book);
+		}
+		removeFromCategoryView(previousBook);
+		addToCategoryView(book);
+	}
+
+	private void addToCategoryView(Book book) {
+		if (book.getCategory() != null) {
+			topRatedByCategory.computeIfAbsent(book.getCategory(), category -> new ConcurrentSkipListSet<>(BY_SCORE))
+					.add(book);
+		}
+	}
+
+	// Callers hold the lock, so the check-then-remove of an empty view is safe
+	private void removeFromCategoryView(Book book) {
+		if (book.getCategory() == null) {
+			return;
+		}
+		NavigableSet<Book> view = topRatedByCategory.get(book.getCategory());
+		if (view != null) {
+			view.remove(book);
+			if (view.isEmpty()) {
+				topRatedByCategory.remove(book.getCategory());
+			}
+		}
+	}
+
+	// Title, author and category postings
+	private void indexAttributes(Book book) {
+		if (book.getTitle() != null) {
+			String title = TitleTrie.normalize(book.getTitle());
+			if (titleIndex.add(title, book.getId())) {
+				titleTrigrams.add(title);
+			}
+		}
+		if (book.getAuthor() != null) {
+			String author = book.getAuthor().toLowerCase(Locale.ROOT);
+			if (authorIndex.add(author, book.getId())) {
+				authorTrigrams.add(author);
+			}
+		}
+		if (book.getCategory() != null) {
+			categoryIndex.add(book.getCategory(), book.getId());
+		}
+	}
+
+	private void unindexAttributes(Book book) {
+		if (book.getTitle() != null) {
+			String title = TitleTrie.normalize(book.getTitle());
+			if (titleIndex.remove(title, book.getId())) {
+				titleTrigrams.remove(title);
+			}
+		}
+		if (book.getAuthor() != null) {
+			String author = book.getAuthor().toLowerCase(Locale.ROOT);
+			if (authorIndex.remove(author, book.getId())) {
+				authorTrigrams.remove(author);
+			}
+		}
+		if (book.getCategory() != null) {
+			categoryIndex.remove(book.getCategory(), book.getId());
+		}
+	}
+
+	// Resolve ids from a posting set against the indexed books
+	private void addIndexedBooks(java.util.Set<String> ids, java.util.List<Book> books) {
+		for (String id : ids) {
+			Book book = indexedBooks.get(id);
+			if (book != null) {
+				books.add(book);
+			}
+		}
+	}
+
+	// Detached copy of a book, used when the original is about to be modified
+	private Book copyOf(Book book) {
+		Book copy = new Book(book.getTitle(), book.getAuthor(), book.getYear(), book.getCategory());
+		copy.setId(book.getId());
+		copy.setStatus(book.getStatus());
+		copy.setAverageRating(book.getAverageRating());
+		copy.setRatingSum(book.getRatingSum());
+		copy.setRatingCount(book.getRatingCount());
+		copy.setRatingHistogram(book.getRatingHistogram() != null ? book.getRatingHistogram().clone() : null);
+		copy.setWaitlistPolicy(book.getWaitlistPolicy());
+		return copy;
+	}
+
 	// Helper method to convert standard Java List to our ArraycitaList
 	private ArraycitaList<Book> convertToCustomArrayList(java.util.List<Book> books) {
 		ArraycitaList<Book> customList = new ArraycitaList<>(books.size());
@@ -0,0 +1,94 @@
+package library.services;
+
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import library.repositories.LoanRepository;
+
+// Background job that keeps the loans collection down to loans still in use: RETURNED
+// loans older than gotabook.loans.archive.after-days move to loans_archive in batches.
+@Service
+public class LoanArchiver {
+	private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+	private static final Logger logger = LoggerFactory.getLogger(LoanArchiver.class);
+
+	private final LoanRepository loanRepository;
+	private final LongSupplier clock;
+	private final long archiveAfterDays;
+	private final long intervalMinutes;
+	private final int batchSize;
+	private ScheduledExecutorService scheduler;
+
+	@Autowired
+	public LoanArchiver(LoanRepository loanRepository,
+			@Value("${gotabook.loans.archive.after-days:180}") long archiveAfterDays,
+			@Value("${gotabook.loans.archive.interval-minutes:60}") long intervalMinutes,
+			@Value("${gotabook.loans.archive.batch-size:500}") int batchSize) {
+		this(loanRepository, System::currentTimeMillis, archiveAfterDays, intervalMinutes, batchSize);
+	}
+
+	public LoanArchiver(LoanRepository loanRepository, LongSupplier clock, long archiveAfterDays,
+			long intervalMinutes, int batchSize) {
+		if (archiveAfterDays < 0 || batchSize <= 0) {
+			throw new IllegalArgumentException(
+					"Illegal archive settings: after " + archiveAfterDays + " days, batches of " + batchSize);
+		}
+		this.loanRepository = loanRepository;
+		this.clock = clock;
+		this.archiveAfterDays = archiveAfterDays;
+		this.intervalMinutes = intervalMinutes;
+		this.batchSize = batchSize;
+	}
+
+	@PostConstruct
+	public void start() {
+		if (intervalMinutes <= 0) {
+			logger.info("Loan archiving is turned off");
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+		scheduler.scheduleWithFixedDelay(this::archiveQuietly, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+		}
+	}
+
+	// Archive everything past the threshold, returns the number of loans moved
+	public int archive() {
+		Date cutoff = new Date(clock.getAsLong() - archiveAfterDays * DAY_MILLIS);
+		int archived = 0;
+		int moved;
+		do {
+			moved = loanRepository.archiveReturnedBefore(cutoff, batchSize);
+			archived += moved;
+		} while (moved == batchSize);
+		if (archived > 0) {
+			logger.info("Archived {} loans returned before {}", archived, cutoff);
+		}
+		return archived;
+	}
+
+	// An exception would cancel the scheduled job, log it and try again next time
+	private void archiveQuietly() {
+		try {
+			archive();
+		} catch (RuntimeException e) {
+			logger.warn("Loan archiving failed", e);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package library.services;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+// Runs loan commands on virtual threads, one at a time per book. Each book's mailbox
+// is the tail of a chain of futures: a new command starts when the previous one for
+// the same book finished, while commands for different books run in parallel.
+@Service
+public class LoanCommandExecutor {
+	private final ExecutorService virtualThreads;
+	// Last queued command per book, removed once it finishes with nothing behind it
+	private final Map<String, CompletableFuture<Void>> mailboxes;
+
+	public LoanCommandExecutor() {
+		this.virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+		this.mailboxes = new ConcurrentHashMap<>();
+	}
+
+	// Queue a command behind the ones already submitted for the book
+	public <T> CompletableFuture<T> submit(String bookId, Supplier<T> command) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		CompletableFuture<Void> tail = mailboxes.compute(bookId, (key, previous) -> {
+			CompletableFuture<Void> after = previous != null ? previous : CompletableFuture.completedFuture(null);
+			// Failures are passed to the caller only, the next command still runs
+			return after.handleAsync((ignored, error) -> {
+				try {
+					result.complete(command.get());
+				} catch (Throwable e) {
+					result.completeExceptionally(e);
+				}
+				return null;
+			}, virtualThreads);
+		});
+		tail.whenComplete((ignored, error) -> mailboxes.remove(bookId, tail));
+		return result;
+	}
+
+	// Run a command that needs no ordering (e.g. finding out which book it is about)
+	public <T> CompletableFuture<T> run(Supplier<T> command) {
+		return CompletableFuture.supplyAsync(command, virtualThreads);
+	}
+
+	// Books with commands queued or running
+	public int activeMailboxes() {
+		return mailboxes.size();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		virtualThreads.shutdown();
+	}
+}
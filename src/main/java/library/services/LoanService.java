@@ -1,21 +1,28 @@
 package library.services;
 
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import datastructures.IndexedWaitlist;
 import library.models.Book;
-import library.models.BookStatus;
 import library.models.Loan;
 import library.models.Loan.LoanStatus;
-import library.models.LoanQueue;
+import library.models.Role;
+import library.models.WaitlistPolicy;
 import library.repositories.BookRepository;
 import library.repositories.LoanQueueRepository;
 import library.repositories.LoanRepository;
+import library.repositories.UserRepository;
 
 @Service
 public class LoanService {
@@ -23,59 +30,230 @@ public class LoanService {
 	private final LoanRepository loanRepository;
 	private final LoanQueueRepository loanQueueRepository;
 	private final BookRepository bookRepository;
+	private final BookService bookService;
+	// Serializes checkouts and returns per book
+	private final LoanCommandExecutor commandExecutor;
+	private final OverdueLoanTracker overdueLoanTracker;
+	private final UserRepository userRepository;
+	private final RecommendationService recommendationService;
+	// In-memory copy of each book's queue, ordered by the book's policy, for O(log n)
+	// positions, cancels and priority changes. Loaded and changed only from the book's
+	// mailbox, right after the stored queue changes.
+	private final Map<String, BookWaitlist> waitlists;
+
+	private record BookWaitlist(WaitlistPolicy policy, IndexedWaitlist<Loan> holds) {
+	}
+
+	// MongoDB round trips made by one command, for the X-Db-Calls header
+	private static final class DbCalls {
+		private int count;
+
+		void add() {
+			count++;
+		}
+	}
 
 	@Autowired
 	public LoanService(LoanRepository loanRepository, BookRepository bookRepository,
-			LoanQueueRepository loanQueueRepository) {
+			LoanQueueRepository loanQueueRepository, BookService bookService, LoanCommandExecutor commandExecutor,
+			OverdueLoanTracker overdueLoanTracker, UserRepository userRepository,
+			RecommendationService recommendationService) {
 		this.loanRepository = loanRepository;
 		this.bookRepository = bookRepository;
 		this.loanQueueRepository = loanQueueRepository;
+		this.bookService = bookService;
+		this.commandExecutor = commandExecutor;
+		this.overdueLoanTracker = overdueLoanTracker;
+		this.userRepository = userRepository;
+		this.recommendationService = recommendationService;
+		this.waitlists = new ConcurrentHashMap<>();
 	}
 
 	public Loan createLoan(Loan newLoan) {
-		// 1. Fetch the book
-		Optional<Book> bookOpt = bookRepository.findById(newLoan.getBookId());
-		if (bookOpt.isEmpty()) {
-			throw new IllegalArgumentException("Book with ID " + newLoan.getBookId() + " not found.");
-		}
+		return await(createLoanAsync(newLoan));
+	}
 
-		Book book = bookOpt.get();
+	// Runs in the book's mailbox, after the commands already queued for that book
+	public CompletableFuture<Loan> createLoanAsync(Loan newLoan) {
+		return commandExecutor.submit(newLoan.getBookId(), () -> checkout(newLoan));
+	}
 
-		// 2. If book is AVAILABLE, loan it out immediately
-		if (BookStatus.AVAILABLE.toString().equals(book.getStatus())) {
-			// Mark book as borrowed
-			book.setStatus(BookStatus.BORROWED.toString());
-			bookRepository.save(book);
+	private Loan checkout(Loan newLoan) {
+		String bookId = newLoan.getBookId();
+
+		// 1. Claim the book if it is AVAILABLE, check and update in one round trip so
+		// two simultaneous checkouts can never both win
+		Book claimedBook = bookRepository.claimIfAvailable(bookId);
+		if (claimedBook != null) {
+			bookService.refreshBook(claimedBook);
 
 			// Mark loan as ACTIVE
 			newLoan.setStatus(LoanStatus.ACTIVE);
-			newLoan.setBookTitle(book.getTitle());
+			newLoan.setBookTitle(claimedBook.getTitle());
+
+			Loan activeLoan = loanRepository.save(newLoan);
+			overdueLoanTracker.track(activeLoan);
+			recommendationService.recordLoan(activeLoan.getUserId(), bookId);
+			return activeLoan;
+		}
+
+		// 2. Missing or already borrowed, the title comes from the in-memory indexes
+		Optional<Book> bookOpt = bookService.findById(bookId);
+		if (bookOpt.isEmpty()) {
+			throw new IllegalArgumentException("Book with ID " + bookId + " not found.");
+		}
 
-			return loanRepository.save(newLoan);
+		// 3. A reader waits once per book, asking again returns the existing hold
+		WaitlistPolicy policy = WaitlistPolicy.of(bookOpt.get().getWaitlistPolicy());
+		IndexedWaitlist<Loan> waitlist = waitlist(bookId, policy);
+		Loan existingHold = waitlist.getByOwner(newLoan.getUserId());
+		if (existingHold != null) {
+			return existingHold;
 		}
 
-		// 3. If book is already borrowed will queue the loan
+		// Queue the loan; it is saved first so the queued copy carries its id
 		newLoan.setStatus(LoanStatus.WAITING);
-		newLoan.setBookTitle(book.getTitle());
+		newLoan.setBookTitle(bookOpt.get().getTitle());
 		// Waiting loans have no return date yet
 		newLoan.setReturnDate(null); 
+		// Priorities come from the policy, never from the request
+		newLoan.setPriority(policy == WaitlistPolicy.PRIORITY && isStaff(newLoan.getUserId())
+				? WaitlistPolicy.STAFF_PRIORITY
+				: WaitlistPolicy.REGULAR_PRIORITY);
+		Loan waitingLoan = loanRepository.save(newLoan);
+		loanQueueRepository.appendLoan(bookId, waitingLoan);
+		enlist(waitlist, policy, waitingLoan);
+		recommendationService.recordLoan(waitingLoan.getUserId(), bookId);
+
+		// 4. A return that ran between the claim and the append saw an empty queue and
+		// released the book; claim it again and hand it to whoever is first in line.
+		// The mailbox rules this out within one instance, not across several.
+		Book releasedBook = bookRepository.claimIfAvailable(bookId);
+		if (releasedBook != null) {
+			bookService.refreshBook(releasedBook);
+			Loan promotedLoan = promoteNextLoan(bookId);
+			if (promotedLoan == null) {
+				// Our loan was already promoted by someone else
+				releaseBook(bookId);
+			} else if (promotedLoan.getId().equals(waitingLoan.getId())) {
+				return promotedLoan;
+			}
+		}
+		return waitingLoan;
+	}
 
-		LoanQueue loanQueue = loanQueueRepository.findById(newLoan.getBookId())
-				.orElse(new LoanQueue(newLoan.getBookId()));
+	// Pop the first waiting loan and make it ACTIVE, or null if the queue is empty
+	private Loan promoteNextLoan(String bookId) {
+		return promoteNextLoan(bookId, new DbCalls());
+	}
 
-		// Add to queue and maintain sorting order
-		loanQueue.addLoan(newLoan);
-		
-		// Get queue as list for sorting
-		List<Loan> waitingList = loanQueue.getQueue();
-		// FIFO 
-		waitingList.sort(Comparator.comparing(Loan::getLoanDate)); 
-		
-		// Set the sorted queue back
-		loanQueue.setQueue(waitingList);
-		loanQueueRepository.save(loanQueue);
+	private Loan promoteNextLoan(String bookId, DbCalls calls) {
+		Loan nextLoan = pollNextLoan(bookId, calls);
+		if (nextLoan == null) {
+			return null;
+		}
+		nextLoan.setStatus(LoanStatus.ACTIVE);
+		nextLoan.setLoanDate(new Date());
+		// The loan period starts now, waiting loans had no return date
+		nextLoan.setReturnDate(Loan.calculateDefaultReturnDate(nextLoan.getLoanDate()));
+		Loan activeLoan = loanRepository.save(nextLoan);
+		calls.add();
+		overdueLoanTracker.track(activeLoan);
+		return activeLoan;
+	}
+
+	// The stored queue is in loan date order, which is what FIFO books serve. Other
+	// policies take the first hold of the waitlist and pull it out of the stored queue.
+	private Loan pollNextLoan(String bookId, DbCalls calls) {
+		WaitlistPolicy policy = policyOf(bookId, calls);
+		if (policy != WaitlistPolicy.FIFO) {
+			IndexedWaitlist<Loan> waitlist = waitlist(bookId, policy, calls);
+			Loan first = waitlist.peekFirst();
+			if (first != null && first.getId() != null) {
+				calls.add();
+				if (loanQueueRepository.removeLoan(bookId, first.getId())) {
+					waitlist.remove(first.getId());
+					return first;
+				}
+			}
+			// Empty, or the stored queue changed behind our back: fall back to its order
+		}
+
+		Loan nextLoan = loanQueueRepository.pollFirstLoan(bookId);
+		calls.add();
+		BookWaitlist loaded = waitlists.get(bookId);
+		if (nextLoan != null && loaded != null
+				&& (nextLoan.getId() == null || loaded.holds().remove(nextLoan.getId()) == null)) {
+			// Not tracked by id, so there is no telling which hold it was; the next
+			// access loads the waitlist again from the stored queue
+			waitlists.remove(bookId);
+		}
+		return nextLoan;
+	}
+
+	private void releaseBook(String bookId) {
+		releaseBook(bookId, new DbCalls());
+	}
+
+	private void releaseBook(String bookId, DbCalls calls) {
+		Book releasedBook = bookRepository.releaseIfBorrowed(bookId);
+		calls.add();
+		if (releasedBook != null) {
+			bookService.refreshBook(releasedBook);
+		}
+	}
+
+	// The book's waitlist, loaded from its stored queue the first time and again when
+	// the book's policy changed. Only call from the book's mailbox.
+	private IndexedWaitlist<Loan> waitlist(String bookId, WaitlistPolicy policy) {
+		return waitlist(bookId, policy, new DbCalls());
+	}
+
+	private IndexedWaitlist<Loan> waitlist(String bookId, WaitlistPolicy policy, DbCalls calls) {
+		BookWaitlist waitlist = waitlists.get(bookId);
+		if (waitlist == null || waitlist.policy() != policy) {
+			IndexedWaitlist<Loan> holds = new IndexedWaitlist<>();
+			loanQueueRepository.findById(bookId)
+					.ifPresent(queue -> queue.getQueue().forEach(loan -> enlist(holds, policy, loan)));
+			calls.add();
+			waitlist = new BookWaitlist(policy, holds);
+			waitlists.put(bookId, waitlist);
+		}
+		return waitlist.holds();
+	}
+
+	// Waitlist reads skip the mailbox once the book's waitlist is loaded
+	private IndexedWaitlist<Loan> loadedWaitlist(String bookId) {
+		WaitlistPolicy policy = policyOf(bookId);
+		BookWaitlist waitlist = waitlists.get(bookId);
+		if (waitlist != null && waitlist.policy() == policy) {
+			return waitlist.holds();
+		}
+		return await(commandExecutor.submit(bookId, () -> waitlist(bookId, policy)));
+	}
+
+	// Ordered by the policy's key, ties in arrival order
+	private static void enlist(IndexedWaitlist<Loan> waitlist, WaitlistPolicy policy, Loan loan) {
+		String id = loan.getId() != null ? loan.getId() : UUID.randomUUID().toString();
+		waitlist.add(id, loan.getUserId(), policy.queueKey(loan), loan);
+	}
 
-		return loanRepository.save(newLoan);
+	private WaitlistPolicy policyOf(String bookId) {
+		return policyOf(bookId, new DbCalls());
+	}
+
+	// Only a cache miss reads the book from MongoDB
+	private WaitlistPolicy policyOf(String bookId, DbCalls calls) {
+		Optional<Book> book = bookService.findIndexed(bookId);
+		if (book.isEmpty()) {
+			calls.add();
+			book = bookService.findById(bookId);
+		}
+		return book.map(found -> WaitlistPolicy.of(found.getWaitlistPolicy())).orElse(WaitlistPolicy.FIFO);
+	}
+
+	private boolean isStaff(String userId) {
+		return userId != null && userRepository.findById(userId).map(user -> user.getRole() == Role.ADMIN).orElse(false);
 	}
 
 	// Get all loans
@@ -84,8 +262,75 @@ public class LoanService {
 	}
 
 	public List<Loan> getLoanQueueByBookId(String bookId) {
-		Optional<LoanQueue> loanQueueOpt = loanQueueRepository.findById(bookId);
-		return loanQueueOpt.map(LoanQueue::getQueue).orElse(null);
+		return loadedWaitlist(bookId).toList();
+	}
+
+	// 1-based place of the reader in the book's queue, -1 if they are not waiting
+	public int getQueuePosition(String bookId, String userId) {
+		int position = loadedWaitlist(bookId).positionOfOwner(userId);
+		return position >= 0 ? position + 1 : -1;
+	}
+
+	public int getQueueLength(String bookId) {
+		return loadedWaitlist(bookId).size();
+	}
+
+	public boolean cancelHold(String loanId) {
+		return await(cancelHoldAsync(loanId));
+	}
+
+	// Withdraw a WAITING loan: pull it out of the stored queue and the waitlist, then
+	// delete it. False if the loan is unknown or no longer waiting.
+	public CompletableFuture<Boolean> cancelHoldAsync(String loanId) {
+		return commandExecutor.run(() -> loanRepository.findById(loanId)).thenCompose(loanOpt -> {
+			if (loanOpt.isEmpty() || loanOpt.get().getStatus() != LoanStatus.WAITING) {
+				return CompletableFuture.completedFuture(false);
+			}
+			String bookId = loanOpt.get().getBookId();
+			// In the mailbox, so it cannot interleave with the promotion of this loan
+			return commandExecutor.submit(bookId, () -> {
+				if (!loanQueueRepository.removeLoan(bookId, loanId)) {
+					// Promoted (or cancelled) while we were looking it up
+					return false;
+				}
+				BookWaitlist loaded = waitlists.get(bookId);
+				if (loaded != null) {
+					loaded.holds().remove(loanId);
+				}
+				loanRepository.deleteById(loanId);
+				return true;
+			});
+		});
+	}
+
+	public Loan setHoldPriority(String loanId, int priority) {
+		return await(setHoldPriorityAsync(loanId, priority));
+	}
+
+	// Raise (or lower) a WAITING loan's priority, e.g. for a course reserve, and move it
+	// in the waitlist. Null if the loan is unknown or no longer waiting.
+	public CompletableFuture<Loan> setHoldPriorityAsync(String loanId, int priority) {
+		if (priority < WaitlistPolicy.REGULAR_PRIORITY) {
+			return CompletableFuture.failedFuture(new IllegalArgumentException("Illegal priority: " + priority));
+		}
+		return commandExecutor.run(() -> loanRepository.findById(loanId)).thenCompose(loanOpt -> {
+			if (loanOpt.isEmpty() || loanOpt.get().getStatus() != LoanStatus.WAITING) {
+				return CompletableFuture.completedFuture(null);
+			}
+			Loan loan = loanOpt.get();
+			String bookId = loan.getBookId();
+			return commandExecutor.submit(bookId, () -> {
+				if (!loanQueueRepository.setLoanPriority(bookId, loanId, priority)) {
+					// Promoted (or cancelled) while we were looking it up
+					return null;
+				}
+				loan.setPriority(priority);
+				Loan savedLoan = loanRepository.save(loan);
+				WaitlistPolicy policy = policyOf(bookId);
+				waitlist(bookId, policy).changeKey(loanId, policy.queueKey(savedLoan), savedLoan);
+				return savedLoan;
+			});
+		});
 	}
 
 	// Get loan by ID
@@ -93,11 +338,21 @@ public class LoanService {
 		return loanRepository.findById(id);
 	}
 
-	// Get loans by user ID
+	// Get loans by user ID, archived loans are left out
 	public List<Loan> getLoansByUserId(String userId) {
 		return loanRepository.findByUserId(userId);
 	}
 
+	// Current loans followed by one page of archived ones, most recently returned first
+	public List<Loan> getLoansByUserId(String userId, int archivePage, int archiveSize) {
+		if (archivePage < 0 || archiveSize <= 0) {
+			throw new IllegalArgumentException("Illegal archive page: " + archivePage + " of size " + archiveSize);
+		}
+		List<Loan> loans = new ArrayList<>(loanRepository.findByUserId(userId));
+		loans.addAll(loanRepository.findArchivedByUserId(userId, archivePage, archiveSize));
+		return loans;
+	}
+
 	// Get active loans by user ID
 	public List<Loan> getActiveLoansByUserId(String userId) {
 		return loanRepository.findByUserIdAndStatus(userId, Loan.LoanStatus.ACTIVE);
@@ -108,64 +363,73 @@ public class LoanService {
 		return loanRepository.findByBookId(bookId);
 	}
 
+	// Outcome of a return, with the number of MongoDB calls it took
+	public record ReturnResult(Loan loan, int dbCalls) {
+	}
+
 	// Return a book (update loan status and book status)
 	public Loan returnBook(String loanId) {
-		Optional<Loan> loanOpt = loanRepository.findById(loanId);
-		if (loanOpt.isEmpty()) {
-			return null;
-		}
-
-		Loan returnedLoan = loanOpt.get();
-		returnedLoan.setStatus(LoanStatus.RETURNED);
-		returnedLoan.setReturnDate(new Date());
-		loanRepository.save(returnedLoan);
-
-		// 1. Fetch and update the Book
-		Optional<Book> bookOpt = bookRepository.findById(returnedLoan.getBookId());
-		if (bookOpt.isEmpty()) {
-			return returnedLoan;
-		}
-
-		Book book = bookOpt.get();
-
-		// 2. Fetch loan queue
-		Optional<LoanQueue> loanQueueOpt = loanQueueRepository.findById(book.getId());
+		return processReturn(loanId).loan();
+	}
 
-		if (loanQueueOpt.isPresent()) {
-			LoanQueue loanQueue = loanQueueOpt.get();
-			
-			if (!loanQueue.isEmpty()) {
-				// 3. Promote next loan in line
-				Loan nextLoan = loanQueue.pollFirst();
-				nextLoan.setStatus(LoanStatus.ACTIVE);
-				nextLoan.setLoanDate(new Date());
-				loanRepository.save(nextLoan);
+	public ReturnResult processReturn(String loanId) {
+		return await(processReturnAsync(loanId));
+	}
 
-				// 4. Update book status and save
-				book.setStatus(BookStatus.BORROWED.toString());
-				bookRepository.save(book);
+	// Each step is one conditional update that also reads what the next step needs,
+	// so a FIFO return takes three round trips: mark the loan returned, pop the queue,
+	// then either activate the next loan or release the book. The book document is only
+	// read on a cache miss, its status only changes when nobody is waiting.
+	public CompletableFuture<ReturnResult> processReturnAsync(String loanId) {
+		// 1. ACTIVE -> RETURNED, which also stops a repeated return from promoting twice.
+		// Only this step tells which book (and so which mailbox) the return belongs to.
+		return commandExecutor.run(() -> loanRepository.markReturned(loanId, new Date())).thenCompose(returnedLoan -> {
+			if (returnedLoan == null) {
+				// Unknown, or already returned: report it unchanged
+				return commandExecutor.run(() -> new ReturnResult(loanRepository.findById(loanId).orElse(null), 2));
+			}
+			overdueLoanTracker.untrack(loanId);
+			return commandExecutor.submit(returnedLoan.getBookId(),
+					() -> new ReturnResult(returnedLoan, 1 + handOver(returnedLoan.getBookId())));
+		});
+	}
 
-				// 5. Persist updated queue
-				loanQueueRepository.save(loanQueue);
-			} else {
-				// No one waiting, mark book as available
-				book.setStatus(BookStatus.AVAILABLE.toString());
-				bookRepository.save(book);
+	// 2. Pop the next loan in line and activate it, the book stays BORROWED for it.
+	// Returns the DB calls made: the pop, then the promoted loan's update or the release,
+	// plus on other policies the waitlist load and the failed removes it fell back from.
+	private int handOver(String bookId) {
+		DbCalls calls = new DbCalls();
+		if (promoteNextLoan(bookId, calls) == null) {
+			// No one waiting, mark book as available. The (empty) queue document is
+			// kept, deleting it could drop a loan appended concurrently.
+			releaseBook(bookId, calls);
+		}
+		return calls.count;
+	}
 
-				// Optionally delete the empty queue
-				loanQueueRepository.deleteById(book.getId());
+	// Wait for a command, rethrowing its own exception
+	private static <T> T await(CompletableFuture<T> command) {
+		try {
+			return command.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
 			}
-		} else {
-			// No queue exists, mark book as available
-			book.setStatus(BookStatus.AVAILABLE.toString());
-			bookRepository.save(book);
+			throw e;
 		}
-
-		return returnedLoan;
 	}
 
+	// ACTIVE loans past their return date, from the overdue tracker
+	public List<Loan> getOverdueLoans() {
+		return overdueLoanTracker.getOverdueLoans();
+	}
 
+	// Waiting loans are cancelled so they do not stay behind in the queue
 	public void deleteLoan(String id) {
+		if (cancelHold(id)) {
+			return;
+		}
 		loanRepository.deleteById(id);
+		overdueLoanTracker.untrack(id);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package library.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import datastructures.TimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import library.models.Loan;
+import library.models.Loan.LoanStatus;
+import library.repositories.LoanRepository;
+
+// Holds every ACTIVE loan in a timing wheel keyed by its return date. When a loan's
+// slot comes up it moves to the overdue set, which is what /api/loans/overdue reads.
+@Service
+public class OverdueLoanTracker {
+	private static final long TICK_MILLIS = 1000;
+	private static final int WHEEL_SIZE = 64;
+	private static final Logger logger = LoggerFactory.getLogger(OverdueLoanTracker.class);
+
+	private final LoanRepository loanRepository;
+	private final LongSupplier clock;
+	private final TimingWheel<Loan> wheel;
+	private final Map<String, Loan> overdueLoans;
+	private ScheduledExecutorService scheduler;
+
+	@Autowired
+	public OverdueLoanTracker(LoanRepository loanRepository) {
+		this(loanRepository, System::currentTimeMillis);
+	}
+
+	public OverdueLoanTracker(LoanRepository loanRepository, LongSupplier clock) {
+		this.loanRepository = loanRepository;
+		this.clock = clock;
+		this.wheel = new TimingWheel<>(TICK_MILLIS, WHEEL_SIZE, clock.getAsLong());
+		this.overdueLoans = new ConcurrentHashMap<>();
+	}
+
+	// Load the active loans once, then tick every second
+	@PostConstruct
+	public void start() {
+		List<Loan> activeLoans = loanRepository.findByStatus(LoanStatus.ACTIVE);
+		for (Loan loan : activeLoans) {
+			track(loan);
+		}
+		logger.info("Tracking {} active loans, {} already overdue", activeLoans.size(), overdueLoans.size());
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+		scheduler.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+		}
+	}
+
+	// Start (or restart) watching an ACTIVE loan's return date
+	public synchronized void track(Loan loan) {
+		if (loan.getId() == null || loan.getReturnDate() == null || loan.getStatus() != LoanStatus.ACTIVE) {
+			return;
+		}
+		overdueLoans.remove(loan.getId());
+		if (!wheel.schedule(loan.getId(), loan.getReturnDate().getTime(), loan)) {
+			overdueLoans.put(loan.getId(), loan);
+		}
+	}
+
+	// The loan was returned or deleted
+	public synchronized void untrack(String loanId) {
+		wheel.cancel(loanId);
+		overdueLoans.remove(loanId);
+	}
+
+	public synchronized void tick() {
+		int before = overdueLoans.size();
+		wheel.advanceTo(clock.getAsLong(), loan -> overdueLoans.put(loan.getId(), loan));
+		if (overdueLoans.size() > before) {
+			logger.info("{} loans became overdue", overdueLoans.size() - before);
+		}
+	}
+
+	// Overdue loans, longest overdue first
+	public List<Loan> getOverdueLoans() {
+		List<Loan> loans = new ArrayList<>(overdueLoans.values());
+		loans.sort(Comparator.comparing(Loan::getReturnDate));
+		return loans;
+	}
+
+	// Loans still waiting for their return date
+	public synchronized int pendingCount() {
+		return wheel.size();
+	}
+}
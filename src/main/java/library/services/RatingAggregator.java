@@ -0,0 +1,214 @@
+package library.services;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import library.models.Book;
+import library.repositories.BookRepository;
+
+// Coalesces rating changes per book. Every change is added to the book's pending
+// star counts, and a flusher writes all pending deltas in one bulk update every
+// gotabook.ratings.flush-interval-millis, so a burst of ratings for one book costs one
+// update. Reads add the deltas that are not written yet. An interval of 0 writes each
+// change right away.
+@Service
+public class RatingAggregator {
+	private static final Logger logger = LoggerFactory.getLogger(RatingAggregator.class);
+
+	private final BookRepository bookRepository;
+	private final BookService bookService;
+	private final long flushIntervalMillis;
+	// Pending change of the 1 to 5 star counts per book, one adder per star
+	private final Map<String, LongAdder[]> pending;
+	// Books changed since the last flush, so a flush only visits those. Marked after the
+	// change is added and cleared before it is taken, a change is never left unmarked.
+	private final Set<String> dirty;
+	// Taken by the running flush, still counted by reads until the book is refreshed
+	private final Map<String, long[]> inFlight;
+	private ScheduledExecutorService scheduler;
+
+	@Autowired
+	public RatingAggregator(BookRepository bookRepository, BookService bookService,
+			@Value("${gotabook.ratings.flush-interval-millis:1000}") long flushIntervalMillis) {
+		this.bookRepository = bookRepository;
+		this.bookService = bookService;
+		this.flushIntervalMillis = flushIntervalMillis;
+		this.pending = new ConcurrentHashMap<>();
+		this.dirty = ConcurrentHashMap.newKeySet();
+		this.inFlight = new ConcurrentHashMap<>();
+	}
+
+	@PostConstruct
+	public void start() {
+		if (flushIntervalMillis <= 0) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+		scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	// Write what is left before shutting down
+	@PreDestroy
+	public void stop() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+		}
+		flushQuietly();
+	}
+
+	// Record a rating going from oldStars to newStars, 0 for none (a new or deleted
+	// rating). Both must be 0 or 1 to 5.
+	public void record(String bookId, int oldStars, int newStars) {
+		if (oldStars == newStars) {
+			return;
+		}
+		if (flushIntervalMillis <= 0) {
+			long[] delta = new long[Book.RATING_LEVELS];
+			if (oldStars > 0) {
+				delta[oldStars - 1]--;
+			}
+			if (newStars > 0) {
+				delta[newStars - 1]++;
+			}
+			writeThrough(bookId, delta);
+			return;
+		}
+		LongAdder[] stars = pending.computeIfAbsent(bookId, id -> newAdders());
+		if (oldStars > 0) {
+			stars[oldStars - 1].decrement();
+		}
+		if (newStars > 0) {
+			stars[newStars - 1].increment();
+		}
+		dirty.add(bookId);
+	}
+
+	// Write every pending delta, returns the number of books updated
+	public synchronized int flush() {
+		Map<String, long[]> deltas = new HashMap<>();
+		for (String bookId : dirty) {
+			dirty.remove(bookId);
+			LongAdder[] stars = pending.get(bookId);
+			// Cell by cell, so a concurrent add lands either in this flush or the next. The
+			// two halves of a changed rating can end up in different flushes.
+			long[] delta = new long[Book.RATING_LEVELS];
+			boolean changed = false;
+			for (int i = 0; i < delta.length; i++) {
+				delta[i] = stars[i].sumThenReset();
+				changed |= delta[i] != 0;
+			}
+			if (changed) {
+				inFlight.put(bookId, delta);
+				deltas.put(bookId, delta);
+			}
+		}
+		if (deltas.isEmpty()) {
+			return 0;
+		}
+
+		try {
+			List<String> withoutCounters = bookRepository.addRatings(deltas);
+			for (String bookId : withoutCounters) {
+				bookRepository.recountRatings(bookId);
+			}
+		} catch (RuntimeException e) {
+			// Keep the deltas for the next flush
+			inFlight.forEach((bookId, delta) -> {
+				LongAdder[] stars = pending.computeIfAbsent(bookId, id -> newAdders());
+				for (int i = 0; i < delta.length; i++) {
+					stars[i].add(delta[i]);
+				}
+				dirty.add(bookId);
+			});
+			inFlight.clear();
+			throw e;
+		}
+
+		// One read for all the books, to bring the in-memory indexes up to date
+		for (Book book : bookRepository.findAllById(deltas.keySet())) {
+			bookService.refreshRatings(book);
+			inFlight.remove(book.getId());
+		}
+		inFlight.clear();
+		return deltas.size();
+	}
+
+	// Add the changes not written yet to a book's histogram, counters and average. The
+	// book is changed in place, so pass a copy (BookService.findById returns one).
+	public Book withPending(Book book) {
+		LongAdder[] stars = pending.get(book.getId());
+		long[] inFlightDelta = inFlight.get(book.getId());
+		if (stars == null && inFlightDelta == null) {
+			return book;
+		}
+		long[] histogram = book.getRatingHistogram() != null ? book.getRatingHistogram().clone()
+				: new long[Book.RATING_LEVELS];
+		for (int i = 0; i < histogram.length; i++) {
+			long delta = (stars != null ? stars[i].sum() : 0) + (inFlightDelta != null ? inFlightDelta[i] : 0);
+			histogram[i] += delta;
+			book.setRatingSum(book.getRatingSum() + (i + 1) * delta);
+			book.setRatingCount(book.getRatingCount() + delta);
+		}
+		book.setRatingHistogram(histogram);
+		book.setAverageRating(book.getRatingCount() > 0 ? (double) book.getRatingSum() / book.getRatingCount() : 0.0);
+		return book;
+	}
+
+	// Books with changes not written yet
+	public int pendingBooks() {
+		int books = 0;
+		for (LongAdder[] stars : pending.values()) {
+			for (LongAdder adder : stars) {
+				if (adder.sum() != 0) {
+					books++;
+					break;
+				}
+			}
+		}
+		return books;
+	}
+
+	private void writeThrough(String bookId, long[] histogramDelta) {
+		Book updatedBook = bookRepository.addRating(bookId, histogramDelta);
+		if (updatedBook == null) {
+			// Missing, or saved without counters by an older version: count once
+			updatedBook = bookRepository.recountRatings(bookId);
+		}
+		if (updatedBook != null) {
+			bookService.refreshRatings(updatedBook); // Keep rating-ordered indexes current
+		}
+	}
+
+	// An exception would cancel the scheduled flush, log it and try again next time
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			logger.warn("Flushing rating changes failed", e);
+		}
+	}
+
+	private static LongAdder[] newAdders() {
+		LongAdder[] stars = new LongAdder[Book.RATING_LEVELS];
+		for (int i = 0; i < stars.length; i++) {
+			stars[i] = new LongAdder();
+		}
+		return stars;
+	}
+}
@@ -9,31 +9,39 @@ import org.springframework.transaction.annotation.Transactional;
 
 import library.models.Book;
 import library.models.Rating;
-import library.repositories.BookRepository;
 import library.repositories.RatingRepository;
 
 @Service
 public class RatingService {
 
 	private final RatingRepository ratingRepository;
-	private final BookRepository bookRepository;
+	// Writes the book counter changes, coalesced per book
+	private final RatingAggregator ratingAggregator;
+	private final RecommendationService recommendationService;
 
 	@Autowired
-	public RatingService(RatingRepository ratingRepository, BookRepository bookRepository) {
+	public RatingService(RatingRepository ratingRepository, RatingAggregator ratingAggregator,
+			RecommendationService recommendationService) {
 		this.ratingRepository = ratingRepository;
-		this.bookRepository = bookRepository;
+		this.ratingAggregator = ratingAggregator;
+		this.recommendationService = recommendationService;
 	}
 
 	// Create a new rating
 	@Transactional
 	public Rating createRating(Rating rating) {
+		checkStars(rating.getRating());
 		// Check if user already rated this book
 		Optional<Rating> existingRating = ratingRepository.findByBookIdAndUserId(rating.getBookId(),
 				rating.getUserId());
 
+		// A new rating adds one to its star count, a repeated one moves between two
+		int oldStars = 0;
+		int newStars = rating.getRating();
 		if (existingRating.isPresent()) {
 			// Update existing rating
 			Rating updatedRating = existingRating.get();
+			oldStars = updatedRating.getRating();
 			updatedRating.setRating(rating.getRating());
 			updatedRating.setComment(rating.getComment());
 			rating = updatedRating;
@@ -43,7 +51,8 @@ public class RatingService {
 		Rating savedRating = ratingRepository.save(rating);
 
 		// Update book's average rating
-		updateBookAverageRating(rating.getBookId());
+		updateBookAverageRating(rating.getBookId(), oldStars, newStars);
+		recommendationService.recordRating(rating.getUserId(), rating.getBookId(), newStars);
 
 		return savedRating;
 	}
@@ -70,6 +79,7 @@ public class RatingService {
 
 	@Transactional
 	public Rating updateRating(String ratingId, int newRatingValue, String newComment) {
+		checkStars(newRatingValue);
 		// Fetch the existing rating
 		Optional<Rating> existingRatingOpt = ratingRepository.findById(ratingId);
 		if (existingRatingOpt.isEmpty()) {
@@ -77,6 +87,7 @@ public class RatingService {
 		}
 
 		Rating existingRating = existingRatingOpt.get();
+		int oldStars = existingRating.getRating();
 
 		// Update only the rating value and comment
 		existingRating.setRating(newRatingValue);
@@ -86,7 +97,8 @@ public class RatingService {
 		Rating updatedRating = ratingRepository.save(existingRating);
 
 		// Update the book's average rating
-		updateBookAverageRating(existingRating.getBookId());
+		updateBookAverageRating(existingRating.getBookId(), oldStars, newRatingValue);
+		recommendationService.recordRating(existingRating.getUserId(), existingRating.getBookId(), newRatingValue);
 
 		return updatedRating;
 	}
@@ -96,29 +108,23 @@ public class RatingService {
 	public void deleteRating(String id) {
 		Optional<Rating> ratingOpt = ratingRepository.findById(id);
 		if (ratingOpt.isPresent()) {
-			String bookId = ratingOpt.get().getBookId();
+			Rating rating = ratingOpt.get();
 			ratingRepository.deleteById(id);
-			updateBookAverageRating(bookId);
+			updateBookAverageRating(rating.getBookId(), rating.getRating(), 0);
+			recommendationService.removeRating(rating.getUserId(), rating.getBookId());
 		}
 	}
 
-	// Helper method to update a book's average rating
-	private void updateBookAverageRating(String bookId) {
-		List<Rating> bookRatings = ratingRepository.findByBookId(bookId);
-
-		double averageRating = 0.0;
-		if (!bookRatings.isEmpty()) {
-			double sum = bookRatings.stream().mapToDouble(Rating::getRating).sum();
-			averageRating = sum / bookRatings.size();
-		}
+	// Pass a rating change on to the book's star counts, in constant time whatever the
+	// number of ratings the book already has. 0 stars stands for no rating.
+	private void updateBookAverageRating(String bookId, int oldStars, int newStars) {
+		ratingAggregator.record(bookId, oldStars, newStars);
+	}
 
-		Optional<Book> bookOpt = bookRepository.findById(bookId);
-		System.out.println("Book ID TO REE CALCULATE: " + bookOpt.get().getTitle());
-		if (bookOpt.isPresent()) {
-			Book book = bookOpt.get();
-			System.out.println("Updating average rating for book: " + book.getTitle() + " to " + averageRating);
-			book.setAverageRating(averageRating);
-			bookRepository.save(book); // Persist the updated book in MongoDB
+	// The histogram has one bucket per star
+	private static void checkStars(int stars) {
+		if (stars < 1 || stars > Book.RATING_LEVELS) {
+			throw new IllegalArgumentException("Rating must be between 1 and " + Book.RATING_LEVELS);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package library.services;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import datastructures.ItemSimilarity;
+import datastructures.ItemSimilarity.Neighbor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import library.models.Loan;
+import library.models.Rating;
+import library.repositories.LoanRepository;
+import library.repositories.RatingRepository;
+
+// "Readers who liked this also liked": books are similar when the same readers borrowed
+// or liked them. Built once from the ratings and loans at startup, then kept current by
+// RatingService and LoanService, so lookups never go to MongoDB. Their changes are queued
+// for one updater thread, a checkout or rating never waits for the similarity lists.
+@Service
+public class RecommendationService {
+	// Ratings of at least this many stars count as liking the book
+	public static final int LIKED_STARS = 4;
+	// Sources of an interaction, a reader stays linked to a book while either holds
+	private static final int BORROWED = 1;
+	private static final int LIKED = 2;
+	private static final Logger logger = LoggerFactory.getLogger(RecommendationService.class);
+
+	private final RatingRepository ratingRepository;
+	private final LoanRepository loanRepository;
+	private final ItemSimilarity similarity;
+	// Applies the recorded changes one at a time, in the order they came in
+	private final ExecutorService updater;
+
+	@Autowired
+	public RecommendationService(RatingRepository ratingRepository, LoanRepository loanRepository,
+			@Value("${gotabook.recommendations.neighbors:20}") int neighborsPerBook) {
+		this.ratingRepository = ratingRepository;
+		this.loanRepository = loanRepository;
+		this.similarity = new ItemSimilarity(neighborsPerBook);
+		this.updater = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+	}
+
+	// Archived loans are left out, recent borrowing says more about taste
+	@PostConstruct
+	public void load() {
+		long start = System.nanoTime();
+		for (Rating rating : ratingRepository.findAll()) {
+			if (rating.getRating() >= LIKED_STARS) {
+				similarity.load(rating.getUserId(), rating.getBookId(), LIKED);
+			}
+		}
+		for (Loan loan : loanRepository.findAll()) {
+			similarity.load(loan.getUserId(), loan.getBookId(), BORROWED);
+		}
+		similarity.rebuild();
+		logger.info("Built book similarities for {} books and {} readers in {} ms", similarity.books(),
+				similarity.users(), (System.nanoTime() - start) / 1_000_000);
+	}
+
+	// Apply what is still queued before shutting down
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		updater.shutdown();
+		updater.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	// A new or changed rating, liked or not depending on the stars
+	public void recordRating(String userId, String bookId, int stars) {
+		if (stars >= LIKED_STARS) {
+			update(() -> similarity.add(userId, bookId, LIKED));
+		} else {
+			update(() -> similarity.remove(userId, bookId, LIKED));
+		}
+	}
+
+	public void removeRating(String userId, String bookId) {
+		update(() -> similarity.remove(userId, bookId, LIKED));
+	}
+
+	// Active loans and holds both count, asking for a book is interest enough
+	public void recordLoan(String userId, String bookId) {
+		update(() -> similarity.add(userId, bookId, BORROWED));
+	}
+
+	// Most similar books first, with their cosine similarity
+	public List<Neighbor> getSimilarBooks(String bookId, int limit) {
+		return similarity.similar(bookId, limit);
+	}
+
+	// Queue a change for the updater, a failed one is logged and the next still runs.
+	// Changes after shutdown are dropped, the lists are rebuilt on the next start.
+	private void update(Runnable change) {
+		try {
+			updater.execute(() -> {
+				try {
+					change.run();
+				} catch (RuntimeException e) {
+					logger.warn("Could not update book similarities", e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			logger.debug("Similarity update after shutdown dropped");
+		}
+	}
+}
@@ -17,9 +17,9 @@ import library.models.Book;
 import library.models.Loan;
 import library.models.Role;
 import library.models.User;
-import library.repositories.BookRepository;
 import library.repositories.LoanRepository;
 import library.repositories.RatingRepository;
+import library.repositories.RatingRepositoryCustom.BookRatingCount;
 import library.repositories.UserRepository;
 
 @Service
@@ -27,20 +27,21 @@ public class StatsService {
 
     private final UserRepository userRepository;
     private final LoanRepository loanRepository;
-    private final BookRepository bookRepository;
     private final RatingRepository ratingRepository;
+    // Most rated books are read off its in-memory view
+    private final BookService bookService;
     private final AffinityGraph affinityGraph;
 
     @Autowired
     public StatsService(
             UserRepository userRepository, 
             LoanRepository loanRepository,
-            BookRepository bookRepository,
-            RatingRepository ratingRepository) {
+            RatingRepository ratingRepository,
+            BookService bookService) {
         this.userRepository = userRepository;
         this.loanRepository = loanRepository;
-        this.bookRepository = bookRepository;
         this.ratingRepository = ratingRepository;
+        this.bookService = bookService;
         this.affinityGraph = new AffinityGraph();
         initializeAffinityGraph();
     }
@@ -76,9 +77,11 @@ public class StatsService {
                 .filter(loan -> loan.getStatus() == Loan.LoanStatus.WAITING)
                 .count();
         
+        // Archived loans are all RETURNED, they are only counted
+        long archivedLoans = loanRepository.countArchivedByUserId(userId);
         long returnedLoans = userLoans.stream()
                 .filter(loan -> loan.getStatus() == Loan.LoanStatus.RETURNED)
-                .count();
+                .count() + archivedLoans;
         
         // Get the most recent loans (up to 5)
         List<Loan> recentLoans = userLoans.stream()
@@ -88,7 +91,7 @@ public class StatsService {
         
         Map<String, Object> stats = new HashMap<>();
         stats.put("username", user.getUsername());
-        stats.put("totalLoans", userLoans.size());
+        stats.put("totalLoans", userLoans.size() + archivedLoans);
         stats.put("activeLoans", activeLoans);
         stats.put("waitingLoans", waitingLoans);
         stats.put("returnedLoans", returnedLoans);
@@ -97,32 +100,32 @@ public class StatsService {
         return stats;
     }
     
-    // 2. Get most rated books in the system
-    public List<Map<String, Object>> getMostRatedBooks(int limit) {
-        List<Book> allBooks = bookRepository.findAll();
-        
-        // Calculate rating count for each book
+    // 2. Get most rated books in the system, from the books' rating counters as kept
+    // in memory (O(limit), no database call). exact recounts the ratings instead, in
+    // one aggregation, for when the counters are in doubt.
+    public List<Map<String, Object>> getMostRatedBooks(int limit, boolean exact) {
         List<Map<String, Object>> bookStats = new ArrayList<>();
-        
-        for (Book book : allBooks) {
-            long ratingCount = ratingRepository.countByBookId(book.getId());
-            if (ratingCount > 0) {
-                Map<String, Object> bookStat = new HashMap<>();
-                bookStat.put("book", book);
-                bookStat.put("ratingCount", ratingCount);
-                bookStats.add(bookStat);
+        if (exact) {
+            for (BookRatingCount mostRated : ratingRepository.findMostRatedBooks(limit)) {
+                bookStats.add(bookStat(mostRated.book(), mostRated.ratingCount()));
             }
+            return bookStats;
         }
-        
-        // Sort by rating count (descending)
-        bookStats.sort((a, b) -> Long.compare(
-                (Long) b.get("ratingCount"), 
-                (Long) a.get("ratingCount")));
-        
-        // Return top N books
-        return bookStats.stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+        for (Book book : bookService.getMostRated(limit)) {
+            bookStats.add(bookStat(book, book.getRatingCount()));
+        }
+        return bookStats;
+    }
+
+    public List<Map<String, Object>> getMostRatedBooks(int limit) {
+        return getMostRatedBooks(limit, false);
+    }
+
+    private static Map<String, Object> bookStat(Book book, long ratingCount) {
+        Map<String, Object> bookStat = new HashMap<>();
+        bookStat.put("book", book);
+        bookStat.put("ratingCount", ratingCount);
+        return bookStat;
     }
     
     // 3. Get readers with most friends
@@ -242,7 +245,11 @@ public class StatsService {
     
     // Format most rated books as text
     public String formatMostRatedBooksAsText(int limit) {
-        List<Map<String, Object>> bookStats = getMostRatedBooks(limit);
+        return formatMostRatedBooksAsText(limit, false);
+    }
+
+    public String formatMostRatedBooksAsText(int limit, boolean exact) {
+        List<Map<String, Object>> bookStats = getMostRatedBooks(limit, exact);
         
         StringBuilder sb = new StringBuilder();
         sb.append("MOST RATED BOOKS\n");
@@ -11,7 +11,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import datastructures.BookBST;
 import library.models.Book;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @ExtendWith(MockitoExtension.class)
 class BookBSTTests {
@@ -83,4 +90,222 @@ class BookBSTTests {
         assertEquals("Design Patterns", allBooks.get(1).getTitle());
         assertEquals("Effective Java", allBooks.get(2).getTitle());
     }
+
+    @Test
+    @DisplayName("Test Prefix Search With Limit")
+    void testFindByPrefix() {
+        bookBST.insert(new Book("Harry Potter and the Chamber of Secrets", "J.K. Rowling", 1998, "Fantasy"));
+        bookBST.insert(new Book("Harry Potter and the Philosopher's Stone", "J.K. Rowling", 1997, "Fantasy"));
+        bookBST.insert(new Book("Harry Potter and the Prisoner of Azkaban", "J.K. Rowling", 1999, "Fantasy"));
+        bookBST.insert(new Book("Hamlet", "William Shakespeare", 1603, "Drama"));
+        bookBST.insert(new Book("Hobbit", "J.R.R. Tolkien", 1937, "Fantasy"));
+
+        List<Book> matches = bookBST.findByPrefix("harry potter and the p", 10);
+        assertEquals(2, matches.size());
+        assertEquals("Harry Potter and the Philosopher's Stone", matches.get(0).getTitle());
+        assertEquals("Harry Potter and the Prisoner of Azkaban", matches.get(1).getTitle());
+
+        assertEquals(2, bookBST.findByPrefix("HARRY", 2).size());
+        assertEquals(5, bookBST.findByPrefix("h", 10).size());
+        assertTrue(bookBST.findByPrefix("Z", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test Range Scan")
+    void testFindInRange() {
+        bookBST.insert(new Book("Clean Code", "Robert Martin", 2008, "Programming"));
+        bookBST.insert(new Book("Design Patterns", "Gang of Four", 1994, "Programming"));
+        bookBST.insert(new Book("Effective Java", "Joshua Bloch", 2017, "Programming"));
+        bookBST.insert(new Book("Refactoring", "Martin Fowler", 1999, "Programming"));
+
+        List<Book> range = bookBST.findInRange("d", "r", 10);
+        assertEquals(2, range.size());
+        assertEquals("Design Patterns", range.get(0).getTitle());
+        assertEquals("Effective Java", range.get(1).getTitle());
+        assertEquals(4, bookBST.findInRange(null, null, 10).size());
+    }
+
+    @Test
+    @DisplayName("Test Update Replaces Title Atomically")
+    void testReplace() {
+        Book book = new Book("Clean Code", "Robert Martin", 2008, "Programming");
+        bookBST.insert(book);
+        bookBST.insert(new Book("Design Patterns", "Gang of Four", 1994, "Programming"));
+
+        Book renamed = new Book("Clean Architecture", "Robert Martin", 2017, "Programming");
+        bookBST.replace("Clean Code", renamed);
+
+        assertNull(bookBST.search("Clean Code"));
+        assertSame(renamed, bookBST.search("clean architecture"));
+        assertEquals(2, bookBST.getAllBooks().size());
+    }
+
+    @Test
+    @DisplayName("Test Old Snapshots Are Not Affected By Writes")
+    void testSnapshotIsolation() {
+        bookBST.insert(new Book("Clean Code", "Robert Martin", 2008, "Programming"));
+        BookBST.BookNode snapshot = bookBST.getRoot();
+
+        bookBST.insert(new Book("Design Patterns", "Gang of Four", 1994, "Programming"));
+        bookBST.delete("Clean Code");
+
+        List<Book> oldVersion = new ArrayList<>();
+        bookBST.inOrderTraversal(snapshot, oldVersion);
+        assertEquals(1, oldVersion.size());
+        assertEquals("Clean Code", oldVersion.get(0).getTitle());
+        assertNull(bookBST.search("Clean Code"));
+    }
+
+    @Test
+    @DisplayName("Test Concurrent Readers And Writers")
+    void testConcurrentReadersAndWriters() throws Exception {
+        int stableBooks = 500;
+        for (int i = 0; i < stableBooks; i++) {
+            bookBST.insert(new Book(String.format("Stable %04d", i), "Author", 2000, "Test"));
+        }
+
+        int writers = 4;
+        int readers = 4;
+        int booksPerWriter = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch writersDone = new CountDownLatch(writers);
+        AtomicBoolean running = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            pool.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < booksPerWriter; i++) {
+                        String title = String.format("Volatile %d-%05d", writer, i);
+                        bookBST.insert(new Book(title, "Author", 2000, "Test"));
+                        if (i % 2 == 0) {
+                            bookBST.delete(title);
+                        }
+                    }
+                } catch (Exception e) {
+                    failures.add(e.toString());
+                } finally {
+                    writersDone.countDown();
+                }
+            });
+        }
+
+        for (int r = 0; r < readers; r++) {
+            pool.submit(() -> {
+                try {
+                    start.await();
+                    int i = 0;
+                    while (running.get()) {
+                        String title = String.format("Stable %04d", i++ % stableBooks);
+                        if (bookBST.search(title) == null) {
+                            failures.add("Missing " + title);
+                        }
+                        if (i % 200 == 0) {
+                            checkSnapshot(bookBST.getRoot(), failures);
+                        }
+                    }
+                } catch (Exception e) {
+                    failures.add(e.toString());
+                }
+            });
+        }
+
+        start.countDown();
+        assertTrue(writersDone.await(60, TimeUnit.SECONDS));
+        running.set(false);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertTrue(failures.isEmpty(), () -> "Failures: " + failures.peek());
+        assertEquals(stableBooks + writers * booksPerWriter / 2, bookBST.getAllBooks().size());
+        checkSnapshot(bookBST.getRoot(), failures);
+        assertTrue(failures.isEmpty(), () -> "Failures: " + failures.peek());
+    }
+
+    @Test
+    @DisplayName("Test Select, Rank And Range Counts")
+    void testOrderStatistics() {
+        for (int i = 0; i < 200; i += 2) {
+            bookBST.insert(new Book(String.format("Book %03d", i), "Author", 2000, "Test"));
+        }
+        bookBST.delete("Book 010");
+
+        assertEquals(99, bookBST.size());
+        assertEquals("Book 000", bookBST.select(0).getTitle());
+        assertEquals("Book 012", bookBST.select(5).getTitle());
+        assertEquals("Book 198", bookBST.select(98).getTitle());
+        assertNull(bookBST.select(99));
+
+        assertEquals(0, bookBST.rank("book 000"));
+        assertEquals(5, bookBST.rank("Book 012"));
+        assertEquals(5, bookBST.rank("Book 011"));
+        assertEquals(99, bookBST.rank("Zzz"));
+
+        assertEquals(bookBST.findInRange("Book 020", "Book 050", 100).size(),
+                bookBST.countInRange("Book 020", "Book 050"));
+        assertEquals(99, bookBST.countInRange(null, null));
+        assertEquals(0, bookBST.countInRange("Book 050", "Book 020"));
+
+        assertEquals("Book 012", bookBST.iteratorAt(5).next().getTitle());
+        assertFalse(bookBST.iteratorAt(99).hasNext());
+    }
+
+    @Test
+    @DisplayName("Test Bulk Build From Sorted Books")
+    void testBuildFromSorted() {
+        bookBST.insert(new Book("Old Book", "Author", 2000, "Test"));
+        List<Book> sorted = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            sorted.add(new Book(String.format("Title %04d", i), "Author", 2000, "Test"));
+        }
+        sorted.add(500, new Book("TITLE 0499", "Duplicate", 2000, "Test"));
+
+        bookBST.buildFromSorted(sorted);
+
+        assertNull(bookBST.search("Old Book"));
+        assertEquals(1000, bookBST.getAllBooks().size());
+        assertEquals("Author", bookBST.search("title 0499").getAuthor());
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        checkSnapshot(bookBST.getRoot(), failures);
+        assertTrue(failures.isEmpty(), () -> "Failures: " + failures.peek());
+
+        bookBST.insert(new Book("Title 0500a", "Author", 2000, "Test"));
+        checkSnapshot(bookBST.getRoot(), failures);
+        assertTrue(failures.isEmpty(), () -> "Failures: " + failures.peek());
+        assertThrows(IllegalArgumentException.class,
+                () -> bookBST.buildFromSorted(List.of(sorted.get(2), sorted.get(1))));
+    }
+
+    // Verifies ordering and AVL balance of a published version
+    private void checkSnapshot(BookBST.BookNode root, ConcurrentLinkedQueue<String> failures) {
+        List<Book> books = new ArrayList<>();
+        bookBST.inOrderTraversal(root, books);
+        for (int i = 1; i < books.size(); i++) {
+            if (books.get(i - 1).getTitle().compareToIgnoreCase(books.get(i).getTitle()) >= 0) {
+                failures.add("Out of order at " + books.get(i).getTitle());
+                return;
+            }
+        }
+        checkBalance(root, failures);
+    }
+
+    private int checkBalance(BookBST.BookNode node, ConcurrentLinkedQueue<String> failures) {
+        if (node == null) {
+            return 0;
+        }
+        int left = checkBalance(node.getLeft(), failures);
+        int right = checkBalance(node.getRight(), failures);
+        if (Math.abs(left - right) > 1 || node.getHeight() != Math.max(left, right) + 1) {
+            failures.add("Unbalanced at " + node.getBook().getTitle());
+        }
+        int leftSize = node.getLeft() == null ? 0 : node.getLeft().getSize();
+        int rightSize = node.getRight() == null ? 0 : node.getRight().getSize();
+        if (node.getSize() != leftSize + rightSize + 1) {
+            failures.add("Wrong size at " + node.getBook().getTitle());
+        }
+        return Math.max(left, right) + 1;
+    }
 }
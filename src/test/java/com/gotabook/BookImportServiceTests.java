@@ -0,0 +1,106 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import library.models.Book;
+import library.repositories.BookRepository;
+import library.services.BookImportService;
+import library.services.BookService;
+
+@ExtendWith(MockitoExtension.class)
+class BookImportServiceTests {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    private BookService bookService;
+    private BookImportService bookImportService;
+
+    @BeforeEach
+    void setup() {
+        bookService = new BookService(bookRepository);
+        bookImportService = new BookImportService(bookRepository, bookService, new ObjectMapper());
+        // Simulates MongoDB assigning ids on insert
+        lenient().when(bookRepository.insert(anyList())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            for (Book book : books) {
+                book.setId("book-" + book.getTitle().hashCode());
+            }
+            return books;
+        });
+    }
+
+    @Test
+    @DisplayName("Test NDJSON Import In Batches")
+    void testImportNdjson() throws Exception {
+        StringBuilder feed = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            feed.append(String.format("{\"title\":\"Feed Book %02d\",\"author\":\"Publisher\",\"year\":2024,\"category\":\"News\"}%n", i));
+        }
+        feed.append("{\"title\":\"Rigged\",\"ratingSum\":500,\"ratingCount\":100,\"averageRating\":5.0,"
+                + "\"ratingHistogram\":[0,0,0,0,100]}\n");
+        feed.append("{\"author\":\"No Title\"}\n");
+        feed.append("not json\n");
+
+        Map<String, Object> report = bookImportService.importBooks(stream(feed.toString()), false, 10);
+
+        assertEquals(26, report.get("imported"));
+        assertEquals(2, report.get("rejected"));
+        assertEquals(3, ((List<?>) report.get("batches")).size());
+        // Imported books start without ratings, whatever the feed says
+        Book rigged = bookService.findByTitle("Rigged");
+        assertEquals(0, rigged.getRatingCount());
+        assertEquals(0, rigged.getRatingSum());
+        assertEquals(0.0, rigged.getAverageRating());
+        assertArrayEquals(new long[Book.RATING_LEVELS], rigged.getRatingHistogram());
+        verify(bookRepository, times(3)).insert(anyList());
+        assertEquals(25, bookService.countByTitleRange("Feed Book", "Feed Booz"));
+        assertEquals("AVAILABLE", bookService.findByTitle("feed book 07").getStatus());
+        assertEquals(25, bookService.filterBooks("News", null, null, null, null, 0, 100).size());
+    }
+
+    @Test
+    @DisplayName("Test CSV Import Merges With Existing Books")
+    void testImportCsv() throws Exception {
+        when(bookRepository.save(org.mockito.ArgumentMatchers.any(Book.class))).thenAnswer(invocation -> {
+            Book book = invocation.getArgument(0);
+            book.setId("existing");
+            return book;
+        });
+        bookService.addBook(new Book("Dune", "Frank Herbert", 1965, "Science Fiction"));
+
+        String feed = "title,author,year,category\n"
+                + "\"Good Omens\",\"Pratchett, Terry\",1990,Fantasy\n"
+                + "\"The \"\"Quoted\"\" Book\",Someone,2001,Misc\n"
+                + "Broken,Someone,not a year,Misc\n";
+        Map<String, Object> report = bookImportService.importBooks(stream(feed), true, 100);
+
+        assertEquals(2, report.get("imported"));
+        assertEquals(1, report.get("rejected"));
+        assertEquals("Pratchett, Terry", bookService.findByTitle("Good Omens").getAuthor());
+        assertNotNull(bookService.findByTitle("The \"Quoted\" Book"));
+        assertEquals(1, bookService.getTitleRank("Dune"));
+        assertEquals(3, bookService.countByTitleRange(null, null));
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
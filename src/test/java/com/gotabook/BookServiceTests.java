@@ -1,14 +1,30 @@
 package com.gotabook;
 
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 
+import datastructures.ArraycitaList;
 import datastructures.BookBST;
 
+import library.models.Book;
 import library.repositories.BookRepository;
 import library.services.BookService;
 
@@ -17,13 +33,316 @@ class BookServiceTests {
 
     @Mock
     private BookRepository bookRepository;
-    
+
     @Mock
     private BookBST bookBST;
-    
+
     @InjectMocks
     private BookService bookService;
-    
 
+    @Test
+    @DisplayName("Test Author Search Matches Substrings Ignoring Case")
+    void testFindByAuthor() {
+        mockSave();
+        bookService.addBook(new Book("The Hobbit", "J.R.R. Tolkien", 1937, "Fantasy"));
+        bookService.addBook(new Book("The Silmarillion", "J.R.R. Tolkien", 1977, "Fantasy"));
+        bookService.addBook(new Book("Dune", "Frank Herbert", 1965, "Science Fiction"));
+
+        ArraycitaList<Book> tolkien = bookService.findByAuthor("TOLK");
+        assertEquals(2, tolkien.size());
+        assertEquals("The Hobbit", tolkien.get(0).getTitle());
+        assertEquals("The Silmarillion", tolkien.get(1).getTitle());
+
+        assertEquals(1, bookService.findByAuthor("rt").size());
+        assertEquals(0, bookService.findByAuthor("Asimov").size());
+        verify(bookRepository, never()).findByAuthorContainingIgnoreCase(any());
+    }
+
+    @Test
+    @DisplayName("Test Category Search Follows Updates")
+    void testFindByCategoryAfterUpdate() {
+        mockSave();
+        Book dune = bookService.addBook(new Book("Dune", "Frank Herbert", 1965, "Science Fiction"));
+        bookService.addBook(new Book("Foundation", "Isaac Asimov", 1951, "Science Fiction"));
+
+        Book changes = new Book();
+        changes.setCategory("Classics");
+        changes.setAuthor("F. Herbert");
+        // MongoDB sets the supplied fields, the document comes back with the rest as stored
+        Book updated = new Book("Dune", "F. Herbert", 1965, "Classics");
+        updated.setId(dune.getId());
+        updated.setStatus("BORROWED");
+        when(bookRepository.updateDetails(dune.getId(), changes)).thenReturn(updated);
+        assertSame(updated, bookService.updateBook(dune.getId(), changes));
+
+        assertEquals(1, bookService.findByCategory("Science Fiction").size());
+        assertEquals("Dune", bookService.findByCategory("Classics").get(0).getTitle());
+        assertEquals(0, bookService.findByCategory("classics").size());
+        assertEquals(1, bookService.findByAuthor("f. herbert").size());
+        assertEquals(0, bookService.findByAuthor("frank").size());
+        assertEquals("BORROWED", bookService.findById(dune.getId()).orElseThrow().getStatus());
+        verify(bookRepository, never()).findByCategory(any());
+        // Only the two adds saved a whole document
+        verify(bookRepository, times(2)).save(any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Test Fuzzy Title Search Tolerates Typos")
+    void testFindByTitleFuzzy() {
+        mockSave();
+        bookService.addBook(new Book("Harry Potter and the Philosopher's Stone", "J.K. Rowling", 1997, "Fantasy"));
+        bookService.addBook(new Book("Harry Potter and the Chamber of Secrets", "J.K. Rowling", 1998, "Fantasy"));
+        bookService.addBook(new Book("Hairy Maclary", "Lynley Dodd", 1983, "Children"));
+        bookService.addBook(new Book("Dune", "Frank Herbert", 1965, "Science Fiction"));
+
+        ArraycitaList<Book> matches = bookService.findByTitleFuzzy("harry poter", 2, 10);
+        assertEquals(2, matches.size());
+        assertTrue(matches.get(0).getTitle().startsWith("Harry Potter"));
+
+        assertEquals(0, bookService.findByTitleFuzzy("harry poter", 0, 10).size());
+        assertEquals(1, bookService.findByTitleFuzzy("harry poter", 2, 1).size());
+        assertEquals("Dune", bookService.findByTitleFuzzy("dnue", 2, 10).get(0).getTitle());
+    }
+
+    @Test
+    @DisplayName("Test Combined Facet Filters")
+    void testFilterBooks() {
+        mockSave();
+        Book hobbit = bookService.addBook(new Book("The Hobbit", "J.R.R. Tolkien", 1937, "Fantasy"));
+        Book goblet = bookService.addBook(new Book("The Goblet of Fire", "J.K. Rowling", 2000, "Fantasy"));
+        Book stardust = bookService.addBook(new Book("Stardust", "Neil Gaiman", 1999, "Fantasy"));
+        bookService.addBook(new Book("Contact", "Carl Sagan", 1985, "Science Fiction"));
+
+        Book rated = new Book("The Goblet of Fire", "J.K. Rowling", 2000, "Fantasy");
+        rated.setId(goblet.getId());
+        rated.setAverageRating(4.5);
+        bookService.refreshBook(rated);
+        Book borrowed = new Book("Stardust", "Neil Gaiman", 1999, "Fantasy");
+        borrowed.setId(stardust.getId());
+        borrowed.setStatus("BORROWED");
+        borrowed.setAverageRating(4.8);
+        bookService.refreshBook(borrowed);
+
+        List<Book> available = bookService.filterBooks("Fantasy", "AVAILABLE", 1990, 2000, 4.0, 0, 10);
+        assertEquals(1, available.size());
+        assertEquals("The Goblet of Fire", available.get(0).getTitle());
+
+        assertEquals(3, bookService.filterBooks("Fantasy", null, null, null, null, 0, 10).size());
+        assertEquals(2, bookService.filterBooks(null, "AVAILABLE", null, 1990, null, 0, 10).size());
+        assertEquals(1, bookService.filterBooks("Fantasy", null, null, null, null, 1, 2).size());
+        assertTrue(bookService.filterBooks("Horror", null, null, null, null, 0, 10).isEmpty());
+        assertEquals(hobbit.getId(), bookService.filterBooks(null, null, 1900, 1950, null, 0, 10).get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Test Keyset Paginated Listing")
+    void testListBooks() {
+        mockSave();
+        Book hobbit = bookService.addBook(new Book("The Hobbit", "J.R.R. Tolkien", 1937, "Fantasy"));
+        Book dune = bookService.addBook(new Book("Dune", "Frank Herbert", 1965, "Science Fiction"));
+        Book contact = bookService.addBook(new Book("Contact", "Carl Sagan", 1985, "Science Fiction"));
+
+        List<Book> firstPage = bookService.listBooks(null, null, 2);
+        assertEquals(List.of("Contact", "Dune"), firstPage.stream().map(Book::getTitle).toList());
+        List<Book> secondPage = bookService.listBooks("title", "Dune", 2);
+        assertEquals(1, secondPage.size());
+        assertEquals("The Hobbit", secondPage.get(0).getTitle());
+
+        assertEquals(hobbit.getId(), bookService.listBooks("year", null, 1).get(0).getId());
+        assertEquals(contact.getId(), bookService.listBooks("year", dune.getId(), 5).get(0).getId());
+        assertEquals(dune.getId(), bookService.listBooks("author", contact.getId(), 1).get(0).getId());
+
+        Book rated = new Book("Dune", "Frank Herbert", 1965, "Science Fiction");
+        rated.setId(dune.getId());
+        rated.setAverageRating(4.7);
+        bookService.refreshBook(rated);
+        List<Book> byRating = bookService.listBooks("rating", null, 10);
+        assertEquals(3, byRating.size());
+        assertSame(rated, byRating.get(0));
+
+        assertThrows(IllegalArgumentException.class, () -> bookService.listBooks("pages", null, 10));
+        assertThrows(IllegalArgumentException.class, () -> bookService.listBooks("year", "missing", 10));
+    }
+
+    @Test
+    @DisplayName("Test Top Rated By Bayesian Score")
+    void testTopRated() {
+        mockSave();
+        Book hobbit = bookService.addBook(new Book("The Hobbit", "J.R.R. Tolkien", 1937, "Fantasy"));
+        Book dune = bookService.addBook(new Book("Dune", "Frank Herbert", 1965, "Science Fiction"));
+        Book contact = bookService.addBook(new Book("Contact", "Carl Sagan", 1985, "Science Fiction"));
+        Book foundation = bookService.addBook(new Book("Foundation", "Isaac Asimov", 1951, "Science Fiction"));
+
+        // A single 5 star vote does not beat forty ratings averaging 4.5
+        Book hobbitRated = rated(hobbit, 0, 0, 0, 0, 1);
+        Book duneRated = rated(dune, 0, 0, 0, 20, 20);
+        Book foundationRated = rated(foundation, 0, 0, 0, 20, 0);
+        assertEquals(5.0, hobbitRated.getAverageRating(), 1e-9);
+        assertEquals(35.0 / 11, hobbitRated.getBayesianScore(), 1e-9);
+
+        assertEquals(List.of("Dune", "Foundation", "The Hobbit", "Contact"),
+                bookService.getTopRated(null, 10).stream().map(Book::getTitle).toList());
+        assertEquals(List.of(duneRated, foundationRated), bookService.getTopRated("Science Fiction", 2));
+        assertEquals(List.of(hobbitRated), bookService.getTopRated("Fantasy", 10));
+        assertTrue(bookService.getTopRated("Horror", 10).isEmpty());
+
+        // A new score moves the book, and a new category moves it between views
+        Book contactRated = rated(contact, 0, 0, 0, 0, 100);
+        assertEquals(contactRated, bookService.getTopRated("Science Fiction", 1).get(0));
+        Book classic = new Book("Dune", "Frank Herbert", 1965, "Classics");
+        classic.setId(dune.getId());
+        Book moved = rated(classic, 0, 0, 0, 20, 20);
+        assertEquals(List.of(contactRated, foundationRated), bookService.getTopRated("Science Fiction", 10));
+        assertEquals(List.of(moved), bookService.getTopRated("Classics", 10));
+        assertEquals(4, bookService.listBooks("score", null, 10).size());
+        assertThrows(IllegalArgumentException.class, () -> bookService.getTopRated(null, 0));
+    }
+
+    @Test
+    @DisplayName("Test Most Rated View Follows The Counters")
+    void testMostRated() {
+        mockSave();
+        Book hobbit = bookService.addBook(new Book("The Hobbit", "J.R.R. Tolkien", 1937, "Fantasy"));
+        Book dune = bookService.addBook(new Book("Dune", "Frank Herbert", 1965, "Science Fiction"));
+        bookService.addBook(new Book("Contact", "Carl Sagan", 1985, "Science Fiction"));
+        assertTrue(bookService.getMostRated(10).isEmpty());
+
+        rated(hobbit, 1, 0, 0, 0, 2);
+        Book duneRated = rated(dune, 0, 0, 1, 0, 0);
+        assertEquals(List.of("The Hobbit", "Dune"), bookService.getMostRated(10).stream().map(Book::getTitle).toList());
+
+        // Two more ratings move Dune ahead, and the unrated book never shows up
+        Book duneMoreRated = rated(duneRated, 0, 0, 1, 2, 1);
+        assertEquals(List.of(duneMoreRated), bookService.getMostRated(1));
+        assertEquals(2, bookService.getMostRated(10).size());
+    }
+
+    @Test
+    @DisplayName("Test Rating Refreshes Keep Newer Status And Never Duplicate")
+    void testConcurrentRefreshes() throws Exception {
+        mockSave();
+        Book dune = bookService.addBook(new Book("Dune", "Frank Herbert", 1965, "Science Fiction"));
+        bookService.addBook(new Book("Contact", "Carl Sagan", 1985, "Science Fiction"));
+
+        // Read by the rating flush before the checkout below was indexed
+        Book staleRated = new Book("Dune", "Frank Herbert", 1965, "Science Fiction");
+        staleRated.setId(dune.getId());
+        staleRated.setRatingCount(1);
+        staleRated.setRatingSum(5);
+        staleRated.setAverageRating(5.0);
+        Book borrowed = new Book("Dune", "Frank Herbert", 1965, "Science Fiction");
+        borrowed.setId(dune.getId());
+        borrowed.setStatus("BORROWED");
+        bookService.refreshBook(borrowed);
+        bookService.refreshRatings(staleRated);
+
+        Book indexed = bookService.findById(dune.getId()).orElseThrow();
+        assertEquals("BORROWED", indexed.getStatus());
+        assertEquals(1, indexed.getRatingCount());
+        assertEquals(1, bookService.filterBooks(null, "BORROWED", null, null, null, 0, 10).size());
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> refreshes = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            int count = i;
+            refreshes.add(pool.submit(() -> {
+                Book rated = new Book("Dune", "Frank Herbert", 1965, "Science Fiction");
+                rated.setId(dune.getId());
+                rated.setRatingCount(count);
+                if (count % 2 == 0) {
+                    bookService.refreshRatings(rated);
+                } else {
+                    bookService.refreshBook(rated);
+                }
+            }));
+        }
+        for (Future<?> refresh : refreshes) {
+            refresh.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        for (String order : List.of("year", "author", "rating", "score", "mostRated")) {
+            assertEquals(2, bookService.listBooks(order, null, 10).size(), order);
+        }
+        assertEquals(2, bookService.getTopRated("Science Fiction", 10).size());
+    }
+
+    // Re-indexes a copy of the book with the given number of 1 to 5 star ratings
+    private Book rated(Book book, long... histogram) {
+        Book rated = new Book(book.getTitle(), book.getAuthor(), book.getYear(), book.getCategory());
+        rated.setId(book.getId());
+        long sum = 0;
+        long count = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            sum += (i + 1) * histogram[i];
+            count += histogram[i];
+        }
+        rated.setRatingHistogram(histogram);
+        rated.setRatingSum(sum);
+        rated.setRatingCount(count);
+        rated.setAverageRating((double) sum / count);
+        bookService.refreshBook(rated);
+        return rated;
+    }
+
+    @Test
+    @DisplayName("Test Find By Id Reads Through And Hands Out Copies")
+    void testFindByIdCache() {
+        mockSave();
+        Book dune = bookService.addBook(new Book("Dune", "Frank Herbert", 1965, "Science Fiction"));
+        Book stored = new Book("Contact", "Carl Sagan", 1985, "Science Fiction");
+        stored.setId("contact");
+        when(bookRepository.findById("contact")).thenReturn(Optional.of(stored));
+        when(bookRepository.findById("missing")).thenReturn(Optional.empty());
+
+        Book copy = bookService.findById(dune.getId()).orElseThrow();
+        copy.setStatus("BORROWED");
+        assertEquals("AVAILABLE", bookService.findById(dune.getId()).orElseThrow().getStatus());
+
+        assertEquals("Contact", bookService.findById("contact").orElseThrow().getTitle());
+        assertEquals("Contact", bookService.findById("contact").orElseThrow().getTitle());
+        assertTrue(bookService.findById("missing").isEmpty());
+        verify(bookRepository, times(1)).findById("contact");
+        verify(bookRepository, never()).findById(dune.getId());
+        assertEquals("Contact", bookService.findByTitle("contact").getTitle());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> cache = (Map<String, Object>) bookService.getIndexStats().get("idCache");
+        assertEquals(3L, cache.get("hits"));
+        assertEquals(2L, cache.get("misses"));
+    }
+
+    // Simulates MongoDB assigning ids on save
+    @Test
+    @DisplayName("Test Refreshes After A Delete Do Not Bring The Book Back")
+    void testRefreshAfterDelete() {
+        mockSave();
+        Book dune = bookService.addBook(new Book("Dune", "Frank Herbert", 1965, "Science Fiction"));
+        bookService.addBook(new Book("Emma", "Jane Austen", 1815, "Classics"));
+
+        // A checkout claim and a rating flush that finish after the delete
+        Book borrowed = new Book("Dune", "Frank Herbert", 1965, "Science Fiction");
+        borrowed.setId(dune.getId());
+        borrowed.setStatus("BORROWED");
+        bookService.deleteBook(dune.getId());
+        bookService.refreshBook(borrowed);
+        bookService.refreshRatings(borrowed);
+
+        verify(bookRepository).deleteById(dune.getId());
+        assertNull(bookService.findByTitle("Dune"));
+        assertEquals(1, bookService.countByTitleRange(null, null));
+        assertEquals(1, bookService.listBooks("year", null, 10).size());
+        assertEquals(0, bookService.filterBooks("Science Fiction", null, null, null, null, 0, 10).size());
+        assertTrue(bookService.searchRanked("dune", 0, 10).isEmpty());
+    }
 
-}
\ No newline at end of file
+    private void mockSave() {
+        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> {
+            Book book = invocation.getArgument(0);
+            if (book.getId() == null) {
+                book.setId("book-" + book.getTitle().hashCode());
+            }
+            return book;
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import datastructures.CircularDeque;
+import library.models.Loan;
+import library.models.LoanQueue;
+
+class CircularDequeTests {
+
+    private CircularDeque<Integer> deque;
+
+    @BeforeEach
+    void setup() {
+        deque = new CircularDeque<>(4);
+    }
+
+    @Test
+    @DisplayName("Test Poll And Add Wrap Around The Buffer")
+    void testWrapAround() {
+        // Keep two or three elements in a four slot buffer so head wraps many times
+        int next = 0;
+        for (int i = 0; i < 100; i++) {
+            deque.addLast(i);
+            if (i >= 2) {
+                assertEquals(next++, deque.pollFirst());
+            }
+        }
+        assertEquals(List.of(98, 99), deque.toList());
+
+        for (int i = 100; i < 200; i++) {
+            deque.addLast(i);
+        }
+        deque.addFirst(97);
+        assertEquals(103, deque.size());
+        assertEquals(97, deque.peekFirst());
+        assertEquals(199, deque.peekLast());
+        assertEquals(150, deque.remove(53));
+        assertEquals(97, deque.remove(0));
+        assertEquals(151, deque.get(52));
+        assertEquals(101, deque.size());
+    }
+
+    @Test
+    @DisplayName("Test Ordered Insert Keeps Ties In Arrival Order")
+    void testAddOrdered() {
+        Comparator<Integer> byTens = Comparator.comparingInt(value -> value / 10);
+        deque.addOrdered(30, byTens);
+        deque.addOrdered(10, byTens);
+        deque.addOrdered(20, byTens);
+        deque.pollFirst();
+        deque.addOrdered(21, byTens);
+        deque.addOrdered(15, byTens);
+        deque.addOrdered(40, byTens);
+
+        assertEquals(List.of(15, 20, 21, 30, 40), deque.toList());
+
+        deque.trimToSize();
+        assertEquals(List.of(15, 20, 21, 30, 40), deque.toList());
+        deque.addLast(50);
+        assertEquals(6, deque.size());
+        assertNull(new CircularDeque<Integer>(0).pollFirst());
+    }
+
+    @Test
+    @DisplayName("Test Loan Queues Stored As ArraycitaList Still Load")
+    void testLegacyLoanQueueDocument() {
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE,
+                new MongoMappingContext());
+        converter.afterPropertiesSet();
+
+        Date first = new Date(1_000);
+        Date second = new Date(2_000);
+        Document legacy = new Document("_id", "book1").append("queue", new Document("elements", java.util.Arrays.asList(
+                loanDocument("loan1", first), loanDocument("loan2", second), null, null)).append("size", 2));
+
+        LoanQueue loanQueue = converter.read(LoanQueue.class, legacy);
+        assertEquals(2, loanQueue.size());
+        Loan late = new Loan("book1", "user3");
+        late.setLoanDate(new Date(1_500));
+        loanQueue.addLoan(late);
+        assertEquals("loan1", loanQueue.pollFirst().getId());
+        assertSame(late, loanQueue.pollFirst());
+
+        loanQueue.compact();
+        Document written = new Document();
+        converter.write(loanQueue, written);
+        Document queue = (Document) written.get("queue");
+        assertEquals(1, ((List<?>) queue.get("elements")).size());
+        assertEquals(0, queue.get("head"));
+        assertEquals(1, queue.get("size"));
+    }
+
+    private Document loanDocument(String id, Date loanDate) {
+        return new Document("_id", id).append("_class", Loan.class.getName()).append("bookId", "book1")
+                .append("userId", "user-" + id).append("loanDate", loanDate).append("status", "WAITING");
+    }
+}
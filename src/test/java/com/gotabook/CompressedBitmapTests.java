@@ -0,0 +1,92 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import datastructures.CompressedBitmap;
+
+class CompressedBitmapTests {
+
+    @Test
+    @DisplayName("Test Bitmap Matches A Reference Set")
+    void testAgainstReferenceSet() {
+        Random random = new Random(42);
+        CompressedBitmap bitmap = new CompressedBitmap();
+        TreeSet<Integer> reference = new TreeSet<>();
+
+        // Dense values in the first chunk force array -> bitmap -> array conversions
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextBoolean() ? random.nextInt(10_000) : random.nextInt(300_000);
+            if (random.nextInt(4) == 0) {
+                assertEquals(reference.remove(value), bitmap.remove(value));
+            } else {
+                assertEquals(reference.add(value), bitmap.add(value));
+            }
+        }
+
+        assertEquals(reference.size(), bitmap.cardinality());
+        assertEquals(new ArrayList<>(reference), toList(bitmap));
+        assertTrue(bitmap.contains(reference.first()));
+        assertFalse(bitmap.contains(-1));
+    }
+
+    @Test
+    @DisplayName("Test Intersection And Union")
+    void testAndOr() {
+        CompressedBitmap evens = new CompressedBitmap();
+        CompressedBitmap threes = new CompressedBitmap();
+        TreeSet<Integer> both = new TreeSet<>();
+        TreeSet<Integer> either = new TreeSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            if (i % 2 == 0) {
+                evens.add(i);
+                either.add(i);
+            }
+            if (i % 3 == 0) {
+                threes.add(i);
+                either.add(i);
+            }
+            if (i % 6 == 0) {
+                both.add(i);
+            }
+        }
+
+        assertEquals(new ArrayList<>(both), toList(evens.and(threes)));
+        assertEquals(new ArrayList<>(either), toList(evens.or(threes)));
+        assertTrue(evens.and(new CompressedBitmap()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test Early Stop While Iterating")
+    void testForEachStops() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < 100; i++) {
+            bitmap.add(i * 1000);
+        }
+
+        List<Integer> firstThree = new ArrayList<>();
+        bitmap.forEach(value -> {
+            firstThree.add(value);
+            return firstThree.size() < 3;
+        });
+
+        assertEquals(List.of(0, 1000, 2000), firstThree);
+    }
+
+    private List<Integer> toList(CompressedBitmap bitmap) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(value -> {
+            values.add(value);
+            return true;
+        });
+        return values;
+    }
+}
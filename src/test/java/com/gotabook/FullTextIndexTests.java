@@ -0,0 +1,88 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import datastructures.FullTextIndex;
+import library.models.Book;
+
+class FullTextIndexTests {
+
+    private FullTextIndex fullTextIndex;
+
+    @BeforeEach
+    void setup() {
+        fullTextIndex = new FullTextIndex();
+        fullTextIndex.add(createBook("1", "The Lord of the Rings", "J.R.R. Tolkien", "Fantasy"));
+        fullTextIndex.add(createBook("2", "The Hobbit", "J.R.R. Tolkien", "Fantasy"));
+        fullTextIndex.add(createBook("3", "Dune", "Frank Herbert", "Science Fiction"));
+        fullTextIndex.add(createBook("4", "Rings of Saturn", "W.G. Sebald", "Fiction"));
+    }
+
+    @Test
+    @DisplayName("Test Ranked Search Across Fields")
+    void testSearch() {
+        List<Book> results = fullTextIndex.search("tolkien rings", 0, 10);
+
+        assertEquals(3, results.size());
+        // Matches both terms, so it ranks first
+        assertEquals("1", results.get(0).getId());
+        assertTrue(fullTextIndex.search("asimov", 0, 10).isEmpty());
+        assertEquals("3", fullTextIndex.search("SCIENCE", 0, 10).get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Test Search Pagination")
+    void testPagination() {
+        List<Book> firstPage = fullTextIndex.search("tolkien rings", 0, 2);
+        List<Book> secondPage = fullTextIndex.search("tolkien rings", 1, 2);
+
+        assertEquals(2, firstPage.size());
+        assertEquals(1, secondPage.size());
+        assertFalse(firstPage.contains(secondPage.get(0)));
+        // Past the last hit, including pages whose offset overflows an int
+        assertTrue(fullTextIndex.search("tolkien rings", 2, 2).isEmpty());
+        assertTrue(fullTextIndex.search("tolkien rings", 1_431_655_765, 3).isEmpty());
+        assertTrue(fullTextIndex.search("tolkien rings", 1, Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test Removed And Replaced Books")
+    void testRemoveAndReplace() {
+        fullTextIndex.remove("2");
+        assertEquals(1, fullTextIndex.search("tolkien", 0, 10).size());
+
+        Book dune = createBook("3", "Dune", "Frank Herbert", "Science Fiction");
+        Book renamed = createBook("3", "Dune Messiah", "Frank Herbert", "Science Fiction");
+        fullTextIndex.replace(dune, renamed);
+
+        assertSame(renamed, fullTextIndex.search("messiah", 0, 10).get(0));
+        assertEquals(3, fullTextIndex.size());
+    }
+
+    @Test
+    @DisplayName("Test Compaction Keeps Results")
+    void testCompaction() {
+        for (int i = 0; i < 3000; i++) {
+            fullTextIndex.add(createBook("tmp" + i, "Temporary " + i, "Nobody", "Misc"));
+        }
+        for (int i = 0; i < 3000; i++) {
+            fullTextIndex.remove("tmp" + i);
+        }
+
+        assertEquals(4, fullTextIndex.size());
+        assertEquals("1", fullTextIndex.search("tolkien rings", 0, 10).get(0).getId());
+        assertTrue(fullTextIndex.search("temporary", 0, 10).isEmpty());
+    }
+
+    private Book createBook(String id, String title, String author, String category) {
+        Book book = new Book(title, author, 2000, category);
+        book.setId(id);
+        return book;
+    }
+}
@@ -0,0 +1,107 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import datastructures.IndexedWaitlist;
+
+class IndexedWaitlistTests {
+
+    private IndexedWaitlist<String> waitlist;
+
+    @BeforeEach
+    void setup() {
+        waitlist = new IndexedWaitlist<>();
+    }
+
+    @Test
+    @DisplayName("Test Positions Follow Key Then Arrival Order")
+    void testPositions() {
+        waitlist.add("loan1", "user1", 200, "loan1");
+        waitlist.add("loan2", "user2", 100, "loan2");
+        waitlist.add("loan3", "user3", 200, "loan3");
+
+        assertEquals(List.of("loan2", "loan1", "loan3"), waitlist.toList());
+        assertEquals(0, waitlist.position("loan2"));
+        assertEquals(1, waitlist.positionOfOwner("user1"));
+        assertEquals(2, waitlist.position("loan3"));
+        assertEquals(-1, waitlist.position("missing"));
+        assertEquals("loan3", waitlist.getByOwner("user3"));
+    }
+
+    @Test
+    @DisplayName("Test One Entry Per Id And Owner")
+    void testDuplicates() {
+        assertTrue(waitlist.add("loan1", "user1", 100, "loan1"));
+        assertFalse(waitlist.add("loan1", "user2", 100, "loan1"));
+        assertFalse(waitlist.add("loan2", "user1", 100, "loan2"));
+        assertEquals(1, waitlist.size());
+
+        // The owner can wait again once the first entry is gone
+        assertEquals("loan1", waitlist.remove("loan1"));
+        assertTrue(waitlist.add("loan2", "user1", 100, "loan2"));
+    }
+
+    @Test
+    @DisplayName("Test Removals Match A Plain List")
+    void testRandomRemovals() {
+        Random random = new Random(42);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            waitlist.add("loan" + i, "user" + i, i, "loan" + i);
+            expected.add("loan" + i);
+        }
+        while (!expected.isEmpty()) {
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(0), waitlist.pollFirst());
+            } else {
+                String removed = expected.remove(random.nextInt(expected.size()));
+                assertEquals(removed, waitlist.remove(removed));
+            }
+            if (!expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertEquals(index, waitlist.position(expected.get(index)));
+                assertEquals(expected.get(0), waitlist.peekFirst());
+            }
+            assertEquals(expected.size(), waitlist.size());
+        }
+        assertTrue(waitlist.isEmpty());
+        assertNull(waitlist.pollFirst());
+    }
+
+    @Test
+    @DisplayName("Test Key Changes Match Sorting On Every Insert")
+    void testChangeKey() {
+        // Reference: a list kept sorted by (key, arrival) after every change
+        Random random = new Random(7);
+        List<long[]> expected = new ArrayList<>(); // {key, arrival}, arrival is also the id
+        Comparator<long[]> order = Comparator.<long[]>comparingLong(entry -> entry[0]).thenComparingLong(entry -> entry[1]);
+        for (int i = 0; i < 1_000; i++) {
+            long key = random.nextInt(500);
+            waitlist.add("loan" + i, "user" + i, key, "loan" + i);
+            expected.add(new long[] { key, i });
+            if (i % 3 == 0) {
+                long[] moved = expected.get(random.nextInt(expected.size()));
+                moved[0] -= random.nextInt(200);
+                assertTrue(waitlist.changeKey("loan" + moved[1], moved[0], "loan" + moved[1]));
+            }
+        }
+        expected.sort(order);
+
+        List<String> ids = new ArrayList<>();
+        for (long[] entry : expected) {
+            ids.add("loan" + entry[1]);
+        }
+        assertEquals(ids, waitlist.toList());
+        assertEquals(ids.indexOf("loan500"), waitlist.positionOfOwner("user500"));
+        assertFalse(waitlist.changeKey("missing", 0, "missing"));
+    }
+}
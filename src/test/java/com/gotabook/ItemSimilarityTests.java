@@ -0,0 +1,158 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import datastructures.ItemSimilarity;
+import datastructures.ItemSimilarity.Neighbor;
+
+class ItemSimilarityTests {
+
+    private static final int BORROWED = 1;
+    private static final int LIKED = 2;
+
+    // Reader sets per book, the brute force side of the comparisons
+    private final Map<String, Set<String>> readers = new HashMap<>();
+
+    private double cosine(String book, String other) {
+        Set<String> a = readers.getOrDefault(book, Set.of());
+        Set<String> b = readers.getOrDefault(other, Set.of());
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        long shared = a.stream().filter(b::contains).count();
+        return shared / Math.sqrt((double) a.size() * b.size());
+    }
+
+    // Best scores first, as the similarity should list them
+    private List<Double> expectedScores(String book, int limit) {
+        List<Double> scores = new ArrayList<>();
+        for (String other : readers.keySet()) {
+            double score = cosine(book, other);
+            if (!other.equals(book) && score > 0) {
+                scores.add(score);
+            }
+        }
+        scores.sort((x, y) -> Double.compare(y, x));
+        return scores.subList(0, Math.min(limit, scores.size()));
+    }
+
+    private void assertRow(ItemSimilarity similarity, String book, int limit) {
+        List<Neighbor> neighbors = similarity.similar(book, limit);
+        List<Double> expected = expectedScores(book, limit);
+        assertEquals(expected.size(), neighbors.size(), book);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), neighbors.get(i).similarity(), 1e-6, book);
+            assertEquals(cosine(book, neighbors.get(i).bookId()), neighbors.get(i).similarity(), 1e-6, book);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Books Read By The Same Readers Are Similar")
+    void testSimilarBooks() {
+        ItemSimilarity similarity = new ItemSimilarity(10);
+        similarity.add("user1", "dune", BORROWED);
+        similarity.add("user1", "foundation", LIKED);
+        similarity.add("user2", "dune", LIKED);
+        similarity.add("user2", "foundation", BORROWED);
+        similarity.add("user2", "emma", BORROWED);
+        similarity.add("user3", "emma", LIKED);
+
+        List<Neighbor> neighbors = similarity.similar("dune", 10);
+        assertEquals(List.of("foundation", "emma"), neighbors.stream().map(Neighbor::bookId).toList());
+        assertEquals(1.0, neighbors.get(0).similarity(), 1e-6);
+        assertEquals(0.5, neighbors.get(1).similarity(), 1e-6);
+        assertEquals(1, similarity.similar("dune", 1).size());
+        assertTrue(similarity.similar("missing", 10).isEmpty());
+
+        // Still borrowed, so dropping the like changes nothing
+        similarity.add("user2", "emma", LIKED);
+        similarity.remove("user2", "emma", BORROWED);
+        assertEquals(0.5, similarity.similar("dune", 10).get(1).similarity(), 1e-6);
+
+        // Gone once no source is left, on both sides
+        similarity.remove("user2", "emma", LIKED);
+        assertEquals(List.of("foundation"), similarity.similar("dune", 10).stream().map(Neighbor::bookId).toList());
+        assertTrue(similarity.similar("emma", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test Parallel Build And Incremental Updates Match Brute Force")
+    void testMatchesBruteForce() {
+        Random random = new Random(7);
+        ItemSimilarity similarity = new ItemSimilarity(5);
+        for (int i = 0; i < 3_000; i++) {
+            String user = "user" + random.nextInt(300);
+            String book = "book" + random.nextInt(200);
+            similarity.load(user, book, BORROWED);
+            readers.computeIfAbsent(book, id -> new HashSet<>()).add(user);
+        }
+        similarity.rebuild();
+        for (String book : readers.keySet()) {
+            assertRow(similarity, book, 5);
+        }
+
+        // Each change leaves the changed book's list exact and every listed score current;
+        // only a rebuild brings back a neighbor pushed out by one that went down since
+        for (int i = 0; i < 500; i++) {
+            String user = "user" + random.nextInt(300);
+            String book = "book" + random.nextInt(200);
+            boolean changed;
+            if (random.nextBoolean()) {
+                similarity.add(user, book, BORROWED);
+                changed = readers.computeIfAbsent(book, id -> new HashSet<>()).add(user);
+            } else {
+                similarity.remove(user, book, BORROWED);
+                changed = readers.getOrDefault(book, new HashSet<>()).remove(user);
+            }
+            if (changed) {
+                assertRow(similarity, book, 5);
+            }
+        }
+        for (String book : readers.keySet()) {
+            for (Neighbor neighbor : similarity.similar(book, 5)) {
+                assertEquals(cosine(book, neighbor.bookId()), neighbor.similarity(), 1e-6);
+            }
+        }
+
+        similarity.rebuild();
+        for (String book : readers.keySet()) {
+            assertRow(similarity, book, 5);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Build, Lookup And Update At Scale")
+    void testBuildAtScale() {
+        Random random = new Random(11);
+        ItemSimilarity similarity = new ItemSimilarity(20);
+        for (int user = 0; user < 20_000; user++) {
+            for (int i = 0; i < 15; i++) {
+                similarity.load("user" + user, "book" + random.nextInt(5_000), BORROWED);
+            }
+        }
+        similarity.rebuild();
+
+        int found = 0;
+        for (int i = 0; i < 100_000; i++) {
+            found += similarity.similar("book" + (i % 5_000), 10).size();
+        }
+        for (int i = 0; i < 1_000; i++) {
+            similarity.add("user" + random.nextInt(20_000), "book" + random.nextInt(5_000), LIKED);
+        }
+
+        assertEquals(5_000, similarity.books());
+        assertEquals(1_000_000, found);
+        assertEquals(20, similarity.similar("book0", 20).size());
+    }
+}
@@ -0,0 +1,77 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import library.models.Loan;
+import library.repositories.BookRepository;
+import library.repositories.LoanQueueRepository;
+import library.repositories.LoanRepository;
+import library.repositories.UserRepository;
+import library.services.BookService;
+import library.services.LoanArchiver;
+import library.services.LoanCommandExecutor;
+import library.services.LoanService;
+import library.services.OverdueLoanTracker;
+import library.services.RecommendationService;
+
+@ExtendWith(MockitoExtension.class)
+class LoanArchiverTests {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Test
+    @DisplayName("Test Archiving Runs Batches Until One Comes Back Short")
+    void testArchiveBatches() {
+        long now = 1_000 * DAY;
+        LoanArchiver archiver = new LoanArchiver(loanRepository, () -> now, 30, 0, 100);
+        Date cutoff = new Date(now - 30 * DAY);
+        when(loanRepository.archiveReturnedBefore(cutoff, 100)).thenReturn(100, 100, 42);
+
+        assertEquals(242, archiver.archive());
+        verify(loanRepository, times(3)).archiveReturnedBefore(cutoff, 100);
+    }
+
+    @Test
+    @DisplayName("Test Nothing To Archive")
+    void testNothingToArchive() {
+        LoanArchiver archiver = new LoanArchiver(loanRepository, () -> 1_000 * DAY, 30, 0, 100);
+        when(loanRepository.archiveReturnedBefore(any(Date.class), eq(100))).thenReturn(0);
+
+        assertEquals(0, archiver.archive());
+        assertThrows(IllegalArgumentException.class, () -> new LoanArchiver(loanRepository, () -> 0, 30, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Test Archived Loans Are Only Read When Asked")
+    void testLoansByUserWithArchive() {
+        Loan current = new Loan("book1", "user1");
+        Loan archived = new Loan("book2", "user1");
+        archived.setStatus(Loan.LoanStatus.RETURNED);
+        when(loanRepository.findByUserId("user1")).thenReturn(List.of(current));
+        when(loanRepository.findArchivedByUserId("user1", 1, 20)).thenReturn(List.of(archived));
+        LoanService loanService = new LoanService(loanRepository, mock(BookRepository.class),
+                mock(LoanQueueRepository.class), mock(BookService.class), mock(LoanCommandExecutor.class),
+                mock(OverdueLoanTracker.class), mock(UserRepository.class), mock(RecommendationService.class));
+
+        assertEquals(List.of(current), loanService.getLoansByUserId("user1"));
+        verify(loanRepository, never()).findArchivedByUserId(any(), anyInt(), anyInt());
+
+        assertEquals(List.of(current, archived), loanService.getLoansByUserId("user1", 1, 20));
+        assertThrows(IllegalArgumentException.class, () -> loanService.getLoansByUserId("user1", -1, 20));
+    }
+}
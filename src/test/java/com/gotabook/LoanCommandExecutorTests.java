@@ -0,0 +1,99 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import library.services.LoanCommandExecutor;
+
+class LoanCommandExecutorTests {
+
+    private LoanCommandExecutor executor;
+
+    @BeforeEach
+    void setup() {
+        executor = new LoanCommandExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test Commands For One Book Run One At A Time In Order")
+    void testSerializedPerBook() throws Exception {
+        int[] counter = { 0 };
+        List<Integer> order = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            int command = i;
+            results.add(executor.submit("book1", () -> {
+                // Not thread safe on purpose, only serialization keeps it exact
+                counter[0]++;
+                order.add(command);
+                return command;
+            }));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        assertEquals(2_000, counter[0]);
+        for (int i = 0; i < order.size(); i++) {
+            assertEquals(i, order.get(i));
+        }
+        assertEquals(1_999, results.get(1_999).get());
+    }
+
+    @Test
+    @DisplayName("Test Different Books Run In Parallel")
+    void testParallelAcrossBooks() throws Exception {
+        int books = 16;
+        CountDownLatch allStarted = new CountDownLatch(books);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < books; i++) {
+            results.add(executor.submit("book" + i, () -> {
+                allStarted.countDown();
+                try {
+                    // Only completes if every book's command is running at the same time
+                    return allStarted.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }));
+        }
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("Test A Failing Command Does Not Block The Mailbox")
+    void testFailure() throws Exception {
+        AtomicInteger completed = new AtomicInteger();
+        CompletableFuture<Object> failing = executor.submit("book1", () -> {
+            throw new IllegalArgumentException("Book with ID book1 not found.");
+        });
+        CompletableFuture<Integer> next = executor.submit("book1", completed::incrementAndGet);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+        assertEquals(1, next.get(10, TimeUnit.SECONDS));
+
+        // Idle mailboxes are dropped
+        for (int i = 0; i < 100 && executor.activeMailboxes() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, executor.activeMailboxes());
+    }
+}
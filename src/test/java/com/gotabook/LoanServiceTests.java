@@ -2,26 +2,46 @@ package com.gotabook;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import library.models.Book;
 import library.models.BookStatus;
 import library.models.Loan;
 import library.models.LoanQueue;
+import library.models.Role;
+import library.models.User;
+import library.models.WaitlistPolicy;
 import library.repositories.BookRepository;
 import library.repositories.LoanQueueRepository;
 import library.repositories.LoanRepository;
+import library.repositories.UserRepository;
+import library.services.BookService;
+import library.services.LoanCommandExecutor;
 import library.services.LoanService;
+import library.services.OverdueLoanTracker;
+import library.services.RecommendationService;
 
 @ExtendWith(MockitoExtension.class)
 class LoanServiceTests {
@@ -34,6 +54,21 @@ class LoanServiceTests {
     
     @Mock
     private LoanQueueRepository loanQueueRepository;
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private OverdueLoanTracker overdueLoanTracker;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RecommendationService recommendationService;
+
+    @Spy
+    private LoanCommandExecutor loanCommandExecutor = new LoanCommandExecutor();
     
     @InjectMocks
     private LoanService loanService;
@@ -52,16 +87,17 @@ class LoanServiceTests {
         Loan loan = new Loan(bookId, userId);
         loan.setId("loan123");
         
-        when(bookRepository.findById(bookId)).thenReturn(Optional.of(book));
+        when(bookRepository.claimIfAvailable(bookId)).thenReturn(book);
         when(loanRepository.save(any(Loan.class))).thenReturn(loan);
-        when(bookRepository.save(any(Book.class))).thenReturn(book);
         
         Loan createdLoan = loanService.createLoan(loan);
         
         assertNotNull(createdLoan);
         assertEquals(Loan.LoanStatus.ACTIVE, createdLoan.getStatus());
         assertEquals("Test Book", createdLoan.getBookTitle());
-        verify(bookRepository, times(1)).save(any(Book.class));
+        verify(bookRepository, times(1)).claimIfAvailable(bookId);
+        verify(bookRepository, never()).save(any(Book.class));
+        verify(recommendationService).recordLoan(userId, bookId);
     }
     
     
@@ -73,26 +109,343 @@ class LoanServiceTests {
         
         Loan loan = new Loan(bookId, "user123");
         loan.setId(loanId);
-        loan.setStatus(Loan.LoanStatus.ACTIVE);
+        loan.setStatus(Loan.LoanStatus.RETURNED);
         
         Book book = new Book();
         book.setId(bookId);
-        book.setStatus(BookStatus.BORROWED.toString());
+        book.setStatus(BookStatus.AVAILABLE.toString());
         
-        LoanQueue loanQueue = new LoanQueue(bookId);
-        loanQueue.setQueue(new ArrayList<>());
+        when(bookService.findIndexed(bookId)).thenReturn(Optional.of(book));
+        when(loanRepository.markReturned(eq(loanId), any(Date.class))).thenReturn(loan);
+        when(loanQueueRepository.pollFirstLoan(bookId)).thenReturn(null);
+        when(bookRepository.releaseIfBorrowed(bookId)).thenReturn(book);
         
-        when(loanRepository.findById(loanId)).thenReturn(Optional.of(loan));
-        when(bookRepository.findById(bookId)).thenReturn(Optional.of(book));
-        when(loanQueueRepository.findById(bookId)).thenReturn(Optional.of(loanQueue));
-        when(loanRepository.save(any(Loan.class))).thenReturn(loan);
-        when(bookRepository.save(any(Book.class))).thenReturn(book);
+        LoanService.ReturnResult result = loanService.processReturn(loanId);
+        
+        assertNotNull(result.loan());
+        assertEquals(Loan.LoanStatus.RETURNED, result.loan().getStatus());
+        assertEquals(3, result.dbCalls());
+        verify(bookService).refreshBook(book);
+        verify(loanRepository, never()).save(any(Loan.class));
+        verify(bookRepository, never()).save(any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Test Book Return Promotes The Next Waiting Loan")
+    void testBookReturnPromotesNextLoan() {
+        Loan loan = new Loan("book123", "user123");
+        loan.setId("loan123");
+        Loan waiting = new Loan("book123", "user456");
+        waiting.setId("loan456");
+        waiting.setStatus(Loan.LoanStatus.WAITING);
+        
+        when(loanRepository.markReturned(eq("loan123"), any(Date.class))).thenReturn(loan);
+        when(loanQueueRepository.pollFirstLoan("book123")).thenReturn(waiting);
+        when(loanRepository.save(waiting)).thenReturn(waiting);
+        
+        LoanService.ReturnResult result = loanService.processReturn("loan123");
+        
+        // The book was not indexed, reading its policy took one more call
+        assertEquals(4, result.dbCalls());
+        assertEquals(Loan.LoanStatus.ACTIVE, waiting.getStatus());
+        assertNotNull(waiting.getReturnDate());
+        verify(overdueLoanTracker).untrack("loan123");
+        verify(overdueLoanTracker).track(waiting);
+        verify(bookRepository, never()).releaseIfBorrowed(any());
+    }
+
+    @Test
+    @DisplayName("Test Returning Twice Does Not Promote Again")
+    void testRepeatedReturn() {
+        Loan loan = new Loan("book123", "user123");
+        loan.setId("loan123");
+        loan.setStatus(Loan.LoanStatus.RETURNED);
         
-        Loan returnedLoan = loanService.returnBook(loanId);
+        when(loanRepository.markReturned(eq("loan123"), any(Date.class))).thenReturn(null);
+        when(loanRepository.findById("loan123")).thenReturn(Optional.of(loan));
         
-        assertNotNull(returnedLoan);
-        assertEquals(Loan.LoanStatus.RETURNED, returnedLoan.getStatus());
-        assertNotNull(returnedLoan.getReturnDate());
-        verify(bookRepository, times(1)).save(any(Book.class));
+        assertSame(loan, loanService.returnBook("loan123"));
+        assertNull(loanService.returnBook("missing"));
+        verify(loanQueueRepository, never()).pollFirstLoan(any());
+    }
+    
+    @Test
+    @DisplayName("Test Checkout Racing A Return Is Not Left Waiting")
+    void testCheckoutRacingReturn() {
+        String bookId = "book123";
+        Book book = new Book("Test Book", "Author", 2020, "Fiction");
+        book.setId(bookId);
+        Loan loan = new Loan(bookId, "user123");
+
+        // Borrowed at the first attempt, released by a return before the recheck
+        when(bookRepository.claimIfAvailable(bookId)).thenReturn(null, book);
+        when(bookService.findById(bookId)).thenReturn(Optional.of(book));
+        when(loanRepository.save(any(Loan.class))).thenAnswer(invocation -> {
+            Loan saved = invocation.getArgument(0);
+            saved.setId("loan123");
+            return saved;
+        });
+        when(loanQueueRepository.pollFirstLoan(bookId)).thenAnswer(invocation -> {
+            Loan queued = new Loan(bookId, "user123");
+            queued.setId("loan123");
+            queued.setStatus(Loan.LoanStatus.WAITING);
+            return queued;
+        });
+
+        Loan createdLoan = loanService.createLoan(loan);
+
+        assertEquals(Loan.LoanStatus.ACTIVE, createdLoan.getStatus());
+        verify(loanQueueRepository).appendLoan(bookId, loan);
+        verify(bookRepository, never()).save(any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Test Simultaneous Checkouts Of One Title")
+    void testConcurrentCheckouts() throws Exception {
+        String bookId = "book123";
+        Book book = new Book("Popular Book", "Author", 2020, "Fiction");
+        book.setId(bookId);
+
+        // Stand-ins for the atomic MongoDB operations
+        AtomicReference<String> status = new AtomicReference<>(BookStatus.AVAILABLE.toString());
+        ConcurrentLinkedQueue<Loan> queued = new ConcurrentLinkedQueue<>();
+        AtomicInteger ids = new AtomicInteger();
+        when(bookRepository.claimIfAvailable(bookId)).thenAnswer(invocation ->
+                status.compareAndSet(BookStatus.AVAILABLE.toString(), BookStatus.BORROWED.toString()) ? book : null);
+        when(bookService.findById(bookId)).thenReturn(Optional.of(book));
+        when(loanRepository.save(any(Loan.class))).thenAnswer(invocation -> {
+            Loan saved = invocation.getArgument(0);
+            if (saved.getId() == null) {
+                saved.setId("loan" + ids.incrementAndGet());
+            }
+            return saved;
+        });
+        doAnswer(invocation -> queued.add(invocation.getArgument(1)))
+                .when(loanQueueRepository).appendLoan(eq(bookId), any(Loan.class));
+
+        int checkouts = 300;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Loan>> results = new ArrayList<>();
+        for (int i = 0; i < checkouts; i++) {
+            String userId = "user" + i;
+            results.add(pool.submit(() -> {
+                start.await();
+                return loanService.createLoan(new Loan(bookId, userId));
+            }));
+        }
+        start.countDown();
+
+        int active = 0;
+        for (Future<Loan> result : results) {
+            if (result.get(30, TimeUnit.SECONDS).getStatus() == Loan.LoanStatus.ACTIVE) {
+                active++;
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(1, active);
+        assertEquals(checkouts - 1, queued.size());
+        assertEquals(BookStatus.BORROWED.toString(), status.get());
+        verify(bookRepository, never()).save(any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Test Queue Position And Cancelling A Hold")
+    void testQueuePositionAndCancelHold() {
+        String bookId = "book123";
+        LoanQueue stored = new LoanQueue(bookId);
+        for (int i = 1; i <= 3; i++) {
+            Loan waiting = new Loan(bookId, "user" + i);
+            waiting.setId("loan" + i);
+            waiting.setStatus(Loan.LoanStatus.WAITING);
+            waiting.setLoanDate(new Date(1_000L * i));
+            stored.addLoan(waiting);
+        }
+        Loan second = stored.getQueue().get(1);
+        when(loanQueueRepository.findById(bookId)).thenReturn(Optional.of(stored));
+        when(loanRepository.findById("loan2")).thenReturn(Optional.of(second));
+        when(loanQueueRepository.removeLoan(bookId, "loan2")).thenReturn(true);
+
+        assertEquals(2, loanService.getQueuePosition(bookId, "user2"));
+        assertEquals(3, loanService.getQueuePosition(bookId, "user3"));
+        assertEquals(-1, loanService.getQueuePosition(bookId, "user9"));
+
+        assertTrue(loanService.cancelHold("loan2"));
+
+        assertEquals(-1, loanService.getQueuePosition(bookId, "user2"));
+        assertEquals(2, loanService.getQueuePosition(bookId, "user3"));
+        assertEquals(2, loanService.getQueueLength(bookId));
+        verify(loanRepository).deleteById("loan2");
+        // Loaded once, later reads come from memory
+        verify(loanQueueRepository, times(1)).findById(bookId);
+    }
+
+    @Test
+    @DisplayName("Test Only Waiting Loans Can Be Cancelled")
+    void testCancelHoldOfActiveLoan() {
+        Loan active = new Loan("book123", "user123");
+        active.setId("loan123");
+        when(loanRepository.findById("loan123")).thenReturn(Optional.of(active));
+
+        assertFalse(loanService.cancelHold("loan123"));
+        assertFalse(loanService.cancelHold("missing"));
+        verify(loanQueueRepository, never()).removeLoan(any(), any());
+        verify(loanRepository, never()).deleteById(any());
+    }
+
+    @Test
+    @DisplayName("Test Waiting Twice For One Book Returns The Same Hold")
+    void testRepeatedHold() {
+        String bookId = "book123";
+        Book book = new Book("Test Book", "Author", 2020, "Fiction");
+        book.setId(bookId);
+        when(bookService.findById(bookId)).thenReturn(Optional.of(book));
+        when(loanRepository.save(any(Loan.class))).thenAnswer(invocation -> {
+            Loan saved = invocation.getArgument(0);
+            saved.setId("loan123");
+            return saved;
+        });
+
+        Loan first = loanService.createLoan(new Loan(bookId, "user123"));
+        Loan second = loanService.createLoan(new Loan(bookId, "user123"));
+
+        assertSame(first, second);
+        assertEquals(1, loanService.getQueuePosition(bookId, "user123"));
+        verify(loanQueueRepository, times(1)).appendLoan(eq(bookId), any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Test Priority Waitlist Serves Staff And Course Reserves First")
+    void testPriorityWaitlist() {
+        String bookId = "book123";
+        Book book = new Book("Reserve Book", "Author", 2020, "Fiction");
+        book.setId(bookId);
+        book.setWaitlistPolicy("priority");
+        long now = System.currentTimeMillis();
+        long day = 24L * 60 * 60 * 1000;
+
+        // A regular hold from 5 days ago and one from an hour ago
+        LoanQueue stored = new LoanQueue(bookId);
+        Loan oldest = new Loan(bookId, "user1");
+        oldest.setId("loan1");
+        oldest.setStatus(Loan.LoanStatus.WAITING);
+        oldest.setLoanDate(new Date(now - 5 * day));
+        stored.addLoan(oldest);
+        Loan recent = new Loan(bookId, "user2");
+        recent.setId("loan2");
+        recent.setStatus(Loan.LoanStatus.WAITING);
+        recent.setLoanDate(new Date(now - 60 * 60 * 1000));
+        stored.addLoan(recent);
+
+        User admin = new User();
+        admin.setId("admin1");
+        admin.setRole(Role.ADMIN);
+        when(bookService.findById(bookId)).thenReturn(Optional.of(book));
+        when(loanQueueRepository.findById(bookId)).thenReturn(Optional.of(stored));
+        when(userRepository.findById("admin1")).thenReturn(Optional.of(admin));
+        when(loanRepository.save(any(Loan.class))).thenAnswer(invocation -> {
+            Loan saved = invocation.getArgument(0);
+            if (saved.getId() == null) {
+                saved.setId("loan3");
+            }
+            return saved;
+        });
+
+        // Staff (3 days) jump ahead of recent holds, but not of one that waited 5 days
+        Loan staffHold = loanService.createLoan(new Loan(bookId, "admin1"));
+        assertEquals(WaitlistPolicy.STAFF_PRIORITY, staffHold.getPriority());
+        assertEquals(2, loanService.getQueuePosition(bookId, "admin1"));
+        assertEquals(3, loanService.getQueuePosition(bookId, "user2"));
+
+        // A course reserve (6 days) moves the recent hold to the front
+        when(loanRepository.findById("loan2")).thenReturn(Optional.of(recent));
+        when(loanQueueRepository.setLoanPriority(bookId, "loan2", WaitlistPolicy.COURSE_RESERVE_PRIORITY))
+                .thenReturn(true);
+        assertNotNull(loanService.setHoldPriority("loan2", WaitlistPolicy.COURSE_RESERVE_PRIORITY));
+        assertEquals(1, loanService.getQueuePosition(bookId, "user2"));
+        assertEquals(2, loanService.getQueuePosition(bookId, "user1"));
+
+        // The next return hands the book to the course reserve, not the oldest hold
+        Loan returned = new Loan(bookId, "user9");
+        returned.setId("loan9");
+        when(loanRepository.markReturned(eq("loan9"), any(Date.class))).thenReturn(returned);
+        when(loanQueueRepository.removeLoan(bookId, "loan2")).thenReturn(true);
+        when(bookService.findIndexed(bookId)).thenReturn(Optional.of(book));
+
+        LoanService.ReturnResult result = loanService.processReturn("loan9");
+
+        assertEquals(3, result.dbCalls());
+        assertEquals(Loan.LoanStatus.ACTIVE, recent.getStatus());
+        assertEquals(-1, loanService.getQueuePosition(bookId, "user2"));
+        assertEquals(1, loanService.getQueuePosition(bookId, "user1"));
+        verify(loanQueueRepository, never()).pollFirstLoan(any());
+    }
+
+    @Test
+    @DisplayName("Test Priority Return Counts Every DB Call")
+    void testPriorityReturnDbCalls() {
+        String bookId = "book123";
+        Book book = new Book("Reserve Book", "Author", 2020, "Fiction");
+        book.setId(bookId);
+        book.setWaitlistPolicy("priority");
+
+        LoanQueue stored = new LoanQueue(bookId);
+        Loan regular = new Loan(bookId, "user1");
+        regular.setId("loan1");
+        regular.setStatus(Loan.LoanStatus.WAITING);
+        stored.addLoan(regular);
+        Loan reserve = new Loan(bookId, "user2");
+        reserve.setId("loan2");
+        reserve.setStatus(Loan.LoanStatus.WAITING);
+        reserve.setPriority(WaitlistPolicy.COURSE_RESERVE_PRIORITY);
+        stored.addLoan(reserve);
+
+        Loan returned = new Loan(bookId, "user9");
+        returned.setId("loan9");
+        when(loanRepository.markReturned(eq("loan9"), any(Date.class))).thenReturn(returned);
+        when(bookService.findById(bookId)).thenReturn(Optional.of(book));
+        when(loanQueueRepository.findById(bookId)).thenReturn(Optional.of(stored));
+        // The course reserve was cancelled elsewhere, the stored queue serves the next one
+        when(loanQueueRepository.removeLoan(bookId, "loan2")).thenReturn(false);
+        when(loanQueueRepository.pollFirstLoan(bookId)).thenReturn(regular);
+        when(loanRepository.save(regular)).thenReturn(regular);
+
+        LoanService.ReturnResult result = loanService.processReturn("loan9");
+
+        // Return, book miss, waitlist load, failed remove, pop and promotion
+        assertEquals(6, result.dbCalls());
+        assertEquals(Loan.LoanStatus.ACTIVE, regular.getStatus());
+    }
+
+    @Test
+    @DisplayName("Test Untracked Pop Reloads The Waitlist")
+    void testUntrackedPopReloadsWaitlist() {
+        String bookId = "book123";
+        Book book = new Book("Test Book", "Author", 2020, "Fiction");
+        book.setId(bookId);
+
+        LoanQueue stored = new LoanQueue(bookId);
+        Loan waiting = new Loan(bookId, "user1");
+        waiting.setId("loan1");
+        waiting.setStatus(Loan.LoanStatus.WAITING);
+        stored.addLoan(waiting);
+        when(bookService.findIndexed(bookId)).thenReturn(Optional.of(book));
+        when(loanQueueRepository.findById(bookId)).thenReturn(Optional.of(stored));
+        assertEquals(1, loanService.getQueuePosition(bookId, "user1"));
+
+        // The stored queue hands out a loan this instance never saw
+        Loan untracked = new Loan(bookId, "user2");
+        untracked.setStatus(Loan.LoanStatus.WAITING);
+        Loan returned = new Loan(bookId, "user9");
+        returned.setId("loan9");
+        when(loanRepository.markReturned(eq("loan9"), any(Date.class))).thenReturn(returned);
+        when(loanQueueRepository.pollFirstLoan(bookId)).thenReturn(untracked);
+        when(loanRepository.save(untracked)).thenReturn(untracked);
+        loanService.processReturn("loan9");
+
+        // user1's hold is still there, read again from the stored queue
+        assertEquals(1, loanService.getQueuePosition(bookId, "user1"));
+        verify(loanQueueRepository, times(2)).findById(bookId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,169 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import library.models.Book;
+import library.repositories.BookRepository;
+import library.services.BookService;
+import library.services.RatingAggregator;
+
+@ExtendWith(MockitoExtension.class)
+class RatingAggregatorTests {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private BookService bookService;
+
+    // A book with the given number of 1 to 5 star ratings
+    private Book book(long... histogram) {
+        Book book = new Book("Launch Title", "Author", 2024, "Fiction");
+        book.setId("book123");
+        long sum = 0;
+        long count = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            sum += (i + 1) * histogram[i];
+            count += histogram[i];
+        }
+        book.setRatingHistogram(histogram);
+        book.setRatingSum(sum);
+        book.setRatingCount(count);
+        book.setAverageRating(count > 0 ? (double) sum / count : 0.0);
+        return book;
+    }
+
+    // Rates one book from many threads, all released at once
+    private void rateConcurrently(RatingAggregator aggregator, int ratings) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < ratings; i++) {
+            int stars = i % 5 + 1;
+            results.add(pool.submit(() -> {
+                start.await();
+                aggregator.record("book123", 0, stars);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test A Burst Of Ratings Becomes One Bulk Update")
+    void testCoalescing() throws Exception {
+        AtomicReference<Map<String, long[]>> written = new AtomicReference<>();
+        when(bookRepository.addRatings(anyMap())).thenAnswer(invocation -> {
+            written.set(Map.copyOf(invocation.getArgument(0)));
+            return List.of();
+        });
+        when(bookRepository.findAllById(any())).thenReturn(List.of(book(2_000, 2_000, 2_000, 2_000, 2_000)));
+        RatingAggregator aggregator = new RatingAggregator(bookRepository, bookService, 60_000);
+
+        rateConcurrently(aggregator, 10_000);
+
+        // Reads see the ratings before they are written
+        Book current = aggregator.withPending(book(0, 0, 0, 0, 0));
+        assertEquals(10_000, current.getRatingCount());
+        assertEquals(3.0, current.getAverageRating(), 1e-9);
+        assertArrayEquals(new long[] { 2_000, 2_000, 2_000, 2_000, 2_000 }, current.getRatingHistogram());
+        assertEquals(1, aggregator.pendingBooks());
+
+        assertEquals(1, aggregator.flush());
+        assertArrayEquals(new long[] { 2_000, 2_000, 2_000, 2_000, 2_000 }, written.get().get("book123"));
+        verify(bookRepository, times(1)).addRatings(anyMap());
+        verify(bookRepository, never()).addRating(any(), any(long[].class));
+        verify(bookService).refreshRatings(any(Book.class));
+        assertEquals(0, aggregator.pendingBooks());
+        assertEquals(0, aggregator.flush());
+    }
+
+    @Test
+    @DisplayName("Test Without Coalescing Every Rating Is A Write")
+    void testWriteThrough() throws Exception {
+        when(bookRepository.addRating(eq("book123"), any(long[].class))).thenReturn(book(0, 0, 1, 0, 0));
+        RatingAggregator aggregator = new RatingAggregator(bookRepository, bookService, 0);
+
+        rateConcurrently(aggregator, 2_000);
+
+        verify(bookRepository, times(2_000)).addRating(eq("book123"), any(long[].class));
+        verify(bookRepository, never()).addRatings(anyMap());
+        assertEquals(0, aggregator.pendingBooks());
+    }
+
+    @Test
+    @DisplayName("Test Changed And Deleted Ratings And Failed Flushes Are Kept")
+    void testRemovalsAndRetry() {
+        when(bookRepository.addRatings(anyMap())).thenThrow(new IllegalStateException("Timed out"))
+                .thenReturn(List.of("book123"));
+        when(bookRepository.findAllById(any())).thenReturn(List.of(book(0, 0, 0, 1, 2)));
+        RatingAggregator aggregator = new RatingAggregator(bookRepository, bookService, 60_000);
+
+        aggregator.record("book123", 0, 5);
+        aggregator.record("book123", 5, 1);
+        aggregator.record("book123", 1, 0);
+        aggregator.record("book123", 0, 4);
+        aggregator.record("book123", 3, 3);
+
+        assertThrows(IllegalStateException.class, aggregator::flush);
+        // Still visible and still pending after the failure
+        Book current = aggregator.withPending(book(0, 0, 0, 0, 2));
+        assertArrayEquals(new long[] { 0, 0, 0, 1, 2 }, current.getRatingHistogram());
+        assertEquals(14, current.getRatingSum());
+        assertEquals(3, current.getRatingCount());
+
+        // The book has no counters yet, so it is recounted instead
+        assertEquals(1, aggregator.flush());
+        verify(bookRepository).recountRatings("book123");
+    }
+
+    @Test
+    @DisplayName("Test A Flush Only Visits Books Changed Since The Last One")
+    void testFlushOnlyChangedBooks() {
+        List<Map<String, long[]>> written = new ArrayList<>();
+        when(bookRepository.addRatings(anyMap())).thenAnswer(invocation -> {
+            written.add(Map.copyOf(invocation.getArgument(0)));
+            return List.of();
+        });
+        RatingAggregator aggregator = new RatingAggregator(bookRepository, bookService, 60_000);
+
+        aggregator.record("book1", 0, 5);
+        aggregator.record("book2", 0, 3);
+        assertEquals(2, aggregator.flush());
+        aggregator.record("book2", 3, 4);
+        assertEquals(1, aggregator.flush());
+        // Changes that cancel out are not written
+        aggregator.record("book1", 0, 2);
+        aggregator.record("book1", 2, 0);
+        assertEquals(0, aggregator.flush());
+
+        assertEquals(2, written.size());
+        assertEquals(2, written.get(0).size());
+        assertArrayEquals(new long[] { 0, 0, -1, 1, 0 }, written.get(1).get("book2"));
+        assertEquals(1, written.get(1).size());
+    }
+}
@@ -0,0 +1,95 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import library.models.Rating;
+import library.repositories.RatingRepository;
+import library.services.RatingAggregator;
+import library.services.RatingService;
+import library.services.RecommendationService;
+
+@ExtendWith(MockitoExtension.class)
+class RatingServiceTests {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private RatingAggregator ratingAggregator;
+
+    @Mock
+    private RecommendationService recommendationService;
+
+    @InjectMocks
+    private RatingService ratingService;
+
+    @Test
+    @DisplayName("Test New Rating Adds To Its Star Count")
+    void testCreateRating() {
+        Rating rating = new Rating("book123", "user123", 4, "Good");
+        when(ratingRepository.findByBookIdAndUserId("book123", "user123")).thenReturn(Optional.empty());
+        when(ratingRepository.save(rating)).thenReturn(rating);
+
+        ratingService.createRating(rating);
+
+        verify(ratingAggregator).record("book123", 0, 4);
+        verify(recommendationService).recordRating("user123", "book123", 4);
+        // Never reads the book's other ratings
+        verify(ratingRepository, never()).findByBookId(any());
+    }
+
+    @Test
+    @DisplayName("Test Rating Again Moves Between Star Counts")
+    void testRepeatedRating() {
+        Rating existing = new Rating("book123", "user123", 2, "Meh");
+        when(ratingRepository.findByBookIdAndUserId("book123", "user123")).thenReturn(Optional.of(existing));
+        when(ratingRepository.save(existing)).thenReturn(existing);
+
+        ratingService.createRating(new Rating("book123", "user123", 5, "Better on a second read"));
+
+        assertEquals(5, existing.getRating());
+        verify(ratingAggregator).record("book123", 2, 5);
+    }
+
+    @Test
+    @DisplayName("Test Update And Delete Apply Their Deltas")
+    void testUpdateAndDelete() {
+        Rating existing = new Rating("book123", "user123", 4, "Good");
+        existing.setId("rating1");
+        when(ratingRepository.findById("rating1")).thenReturn(Optional.of(existing));
+        when(ratingRepository.save(existing)).thenReturn(existing);
+
+        ratingService.updateRating("rating1", 1, "Changed my mind");
+        ratingService.deleteRating("rating1");
+
+        verify(ratingAggregator).record("book123", 4, 1);
+        verify(ratingAggregator).record("book123", 1, 0);
+        verify(recommendationService).recordRating("user123", "book123", 1);
+        verify(recommendationService).removeRating("user123", "book123");
+        verify(ratingRepository).deleteById("rating1");
+        verify(ratingAggregator, times(2)).record(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Test Ratings Outside 1 To 5 Are Rejected")
+    void testInvalidRating() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ratingService.createRating(new Rating("book123", "user123", 6, "Off the scale")));
+        assertThrows(IllegalArgumentException.class, () -> ratingService.updateRating("rating1", 0, "None"));
+
+        verify(ratingRepository, never()).save(any());
+        verifyNoInteractions(ratingAggregator);
+    }
+}
@@ -0,0 +1,57 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import datastructures.ItemSimilarity.Neighbor;
+import library.models.Loan;
+import library.models.Rating;
+import library.repositories.LoanRepository;
+import library.repositories.RatingRepository;
+import library.services.RecommendationService;
+
+@ExtendWith(MockitoExtension.class)
+class RecommendationServiceTests {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Test
+    @DisplayName("Test Recorded Changes Are Applied In Order By The Updater")
+    void testQueuedUpdates() throws InterruptedException {
+        when(ratingRepository.findAll()).thenReturn(List.of(new Rating("dune", "user1", 5, "Great")));
+        when(loanRepository.findAll()).thenReturn(List.of(new Loan("foundation", "user1")));
+        RecommendationService recommendationService = new RecommendationService(ratingRepository, loanRepository, 10);
+        recommendationService.load();
+        assertEquals(List.of("foundation"),
+                recommendationService.getSimilarBooks("dune", 10).stream().map(Neighbor::bookId).toList());
+
+        recommendationService.recordLoan("user2", "dune");
+        recommendationService.recordRating("user2", "emma", 5);
+        recommendationService.recordRating("user2", "emma", 2);
+        recommendationService.recordRating("user2", "foundation", 4);
+        recommendationService.removeRating("user2", "foundation");
+        recommendationService.recordLoan("user2", "foundation");
+        // Stopping applies everything still queued
+        recommendationService.stop();
+
+        List<Neighbor> neighbors = recommendationService.getSimilarBooks("dune", 10);
+        assertEquals(List.of("foundation"), neighbors.stream().map(Neighbor::bookId).toList());
+        assertEquals(1.0, neighbors.get(0).similarity(), 1e-6);
+        assertTrue(recommendationService.getSimilarBooks("emma", 10).isEmpty());
+
+        // Dropped once stopped, never thrown at the caller
+        recommendationService.recordLoan("user3", "dune");
+    }
+}
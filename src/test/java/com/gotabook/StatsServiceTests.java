@@ -0,0 +1,82 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import library.models.Book;
+import library.repositories.LoanRepository;
+import library.repositories.RatingRepository;
+import library.repositories.RatingRepositoryCustom.BookRatingCount;
+import library.repositories.UserRepository;
+import library.services.BookService;
+import library.services.StatsService;
+
+@ExtendWith(MockitoExtension.class)
+class StatsServiceTests {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private BookService bookService;
+
+    @InjectMocks
+    private StatsService statsService;
+
+    private Book book(String title, long ratingCount) {
+        Book book = new Book(title, "Author", 2000, "Fiction");
+        book.setId(title.toLowerCase());
+        book.setRatingCount(ratingCount);
+        return book;
+    }
+
+    @Test
+    @DisplayName("Test Most Rated Books Come From The In-Memory View")
+    void testMostRatedFromView() {
+        Book dune = book("Dune", 12);
+        Book emma = book("Emma", 3);
+        when(bookService.getMostRated(2)).thenReturn(List.of(dune, emma));
+
+        List<Map<String, Object>> mostRated = statsService.getMostRatedBooks(2);
+
+        assertEquals(2, mostRated.size());
+        assertSame(dune, mostRated.get(0).get("book"));
+        assertEquals(12L, mostRated.get(0).get("ratingCount"));
+        assertEquals(3L, mostRated.get(1).get("ratingCount"));
+        // Not one query per book, not even one in total
+        verifyNoInteractions(ratingRepository);
+        assertTrue(statsService.formatMostRatedBooksAsText(2).contains("1. Dune"));
+    }
+
+    @Test
+    @DisplayName("Test Exact Most Rated Books Take One Aggregation")
+    void testMostRatedExact() {
+        Book dune = book("Dune", 11);
+        when(ratingRepository.findMostRatedBooks(5)).thenReturn(List.of(new BookRatingCount(dune, 12)));
+
+        List<Map<String, Object>> mostRated = statsService.getMostRatedBooks(5, true);
+
+        assertEquals(1, mostRated.size());
+        assertEquals(12L, mostRated.get(0).get("ratingCount"));
+        verify(ratingRepository, times(1)).findMostRatedBooks(anyInt());
+        verify(ratingRepository, never()).countByBookId(any());
+        verifyNoInteractions(bookService);
+    }
+}
@@ -0,0 +1,112 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import datastructures.TimingWheel;
+import library.models.Loan;
+import library.models.Loan.LoanStatus;
+import library.repositories.LoanRepository;
+import library.services.OverdueLoanTracker;
+
+class TimingWheelTests {
+
+    @Test
+    @DisplayName("Test Entries Fire At Their Deadline Across Levels")
+    void testFiresInDeadlineOrder() {
+        // 10ms ticks, 8 slots: levels of 80ms, 640ms, 5120ms, ...
+        TimingWheel<Long> wheel = new TimingWheel<>(10, 8, 0);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            long deadline = 1 + random.nextInt(100_000);
+            deadlines.add(deadline);
+            assertTrue(wheel.schedule("entry" + i, deadline, deadline));
+        }
+
+        List<Long> fired = new ArrayList<>();
+        long now = 0;
+        while (now < 100_000) {
+            now += 1 + random.nextInt(50);
+            long current = now;
+            wheel.advanceTo(now, deadline -> {
+                // Never before the deadline
+                assertTrue(deadline <= current, () -> deadline + " fired at " + current);
+                fired.add(deadline);
+            });
+        }
+
+        assertEquals(deadlines.size(), fired.size());
+        for (int i = 1; i < fired.size(); i++) {
+            assertTrue((fired.get(i - 1) + 9) / 10 <= (fired.get(i) + 9) / 10, "Out of tick order");
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Test Cancel, Reschedule And Past Deadlines")
+    void testCancelAndReschedule() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 1_000);
+        assertFalse(wheel.schedule("late", 995, "late"));
+        assertTrue(wheel.schedule("a", 5_000, "a"));
+        assertTrue(wheel.schedule("b", 2_000, "b"));
+        assertTrue(wheel.cancel("b"));
+        assertFalse(wheel.cancel("b"));
+        assertTrue(wheel.schedule("a", 1_500, "a again"));
+        assertEquals(1, wheel.size());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(1_499, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advanceTo(10_000, fired::add);
+        assertEquals(List.of("a again"), fired);
+        assertFalse(wheel.contains("a"));
+    }
+
+    @Test
+    @DisplayName("Test Overdue Tracker Moves Loans Past Their Return Date")
+    void testOverdueTracker() {
+        AtomicLong clock = new AtomicLong(1_000_000);
+        LoanRepository loanRepository = mock(LoanRepository.class);
+        Loan overdue = activeLoan("loan1", 999_000);
+        Loan dueSoon = activeLoan("loan2", 1_005_000);
+        Loan dueLater = activeLoan("loan3", 1_000_000 + 14L * 24 * 3600 * 1000);
+        when(loanRepository.findByStatus(LoanStatus.ACTIVE)).thenReturn(List.of(overdue, dueSoon, dueLater));
+
+        OverdueLoanTracker tracker = new OverdueLoanTracker(loanRepository, clock::get);
+        try {
+            tracker.start();
+            assertEquals(List.of(overdue), tracker.getOverdueLoans());
+            assertEquals(2, tracker.pendingCount());
+
+            clock.set(1_006_000);
+            tracker.tick();
+            assertEquals(List.of(overdue, dueSoon), tracker.getOverdueLoans());
+
+            tracker.untrack("loan1");
+            clock.addAndGet(14L * 24 * 3600 * 1000);
+            tracker.tick();
+            assertEquals(List.of(dueSoon, dueLater), tracker.getOverdueLoans());
+            assertEquals(0, tracker.pendingCount());
+        } finally {
+            tracker.stop();
+        }
+    }
+
+    private Loan activeLoan(String id, long returnDate) {
+        Loan loan = new Loan("book1", "user1");
+        loan.setId(id);
+        loan.setStatus(LoanStatus.ACTIVE);
+        loan.setReturnDate(new Date(returnDate));
+        return loan;
+    }
+}
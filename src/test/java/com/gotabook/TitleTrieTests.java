@@ -0,0 +1,81 @@
+package com.gotabook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import datastructures.TitleTrie;
+import library.models.Book;
+
+class TitleTrieTests {
+
+    private TitleTrie titleTrie;
+
+    @BeforeEach
+    void setup() {
+        titleTrie = new TitleTrie(2);
+    }
+
+    @Test
+    @DisplayName("Test Autocomplete Returns Best Rated First")
+    void testComplete() {
+        titleTrie.insert(createBook("1", "The Hobbit", 4.7));
+        titleTrie.insert(createBook("2", "The Histories", 3.9));
+        titleTrie.insert(createBook("3", "The Hunger Games", 4.2));
+        titleTrie.insert(createBook("4", "Dune", 4.5));
+
+        List<Book> matches = titleTrie.complete("the h", 10);
+
+        assertEquals(2, matches.size());
+        assertEquals("The Hobbit", matches.get(0).getTitle());
+        assertEquals("The Hunger Games", matches.get(1).getTitle());
+        assertEquals(1, titleTrie.complete("THE   HI", 10).size());
+        assertEquals(1, titleTrie.complete("the h", 1).size());
+        assertTrue(titleTrie.complete("the x", 10).isEmpty());
+        assertEquals(4, titleTrie.size());
+    }
+
+    @Test
+    @DisplayName("Test Removal Refills The Cached Top Books")
+    void testRemove() {
+        Book hobbit = createBook("1", "The Hobbit", 4.7);
+        titleTrie.insert(hobbit);
+        titleTrie.insert(createBook("2", "The Histories", 3.9));
+        titleTrie.insert(createBook("3", "The Hunger Games", 4.2));
+
+        assertTrue(titleTrie.remove(hobbit));
+
+        List<Book> matches = titleTrie.complete("the h", 10);
+        assertEquals(2, matches.size());
+        assertEquals("The Hunger Games", matches.get(0).getTitle());
+        assertEquals("The Histories", matches.get(1).getTitle());
+        assertTrue(titleTrie.complete("the hob", 10).isEmpty());
+        assertFalse(titleTrie.remove(hobbit));
+    }
+
+    @Test
+    @DisplayName("Test Rating Change Reorders Results")
+    void testRatingChange() {
+        Book histories = createBook("2", "The Histories", 3.9);
+        titleTrie.insert(createBook("1", "The Hobbit", 4.7));
+        titleTrie.insert(histories);
+        titleTrie.insert(createBook("3", "The Hunger Games", 4.2));
+
+        Book rerated = createBook("2", "The Histories", 5.0);
+        titleTrie.remove(histories);
+        titleTrie.insert(rerated);
+
+        assertSame(rerated, titleTrie.complete("the", 1).get(0));
+    }
+
+    private Book createBook(String id, String title, double averageRating) {
+        Book book = new Book(title, "Author", 2000, "Fiction");
+        book.setId(id);
+        book.setAverageRating(averageRating);
+        return book;
+    }
+}